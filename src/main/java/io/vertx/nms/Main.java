@@ -1,74 +1,49 @@
 package io.vertx.nms;
 
+import io.vertx.core.CompositeFuture;
 import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Future;
 import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
 import io.vertx.nms.database.Database;
 import io.vertx.nms.polling.PollingProcessor;
 import io.vertx.nms.polling.PollingScheduler;
 import io.vertx.nms.http.ApiServer;
+import io.vertx.nms.messaging.PluginSupervisor;
+import io.vertx.nms.messaging.PluginWorkerPool;
 import io.vertx.nms.messaging.ZmqMessenger;
 import io.vertx.nms.util.Constants;
+import io.vertx.nms.util.Util;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.zeromq.SocketType;
 import org.zeromq.ZMQ;
 
 import java.io.File;
+import java.util.ArrayList;
 
 public class Main
 {
     private static final Logger logger = LoggerFactory.getLogger(Main.class);
 
-    private static final String HEALTH_CHECK = "health_check";
-
-    private static final String OK = "ok";
-
-    private static Process goProcess;
+    private static PluginWorkerPool pluginWorkers;
 
     public static void main(String[] args)
     {
         startGoPlugin();
 
-        try (var context = ZMQ.context(1);
-             var push = context.socket(SocketType.PUSH);
-             var pull = context.socket(SocketType.PULL);)
+        for (var worker = 0; worker < pluginWorkers.size(); worker++)
         {
-            push.bind(Constants.ZMQ_PUSH_ADDRESS);
-
-            pull.bind(Constants.ZMQ_PULL_ADDRESS);
-
-            push.setSendTimeOut(500);
-
-            push.send(HEALTH_CHECK );
-
-            pull.setReceiveTimeOut(500);
-
-            var response = pull.recvStr();
-
-            if (response == null)
+            if (!checkPluginWorker(worker))
             {
-                logger.error("ZMQ server is not responding. Port 5555 might be in use");
-
-                pull.close();
-
-                System.exit(1);
+                return;
             }
-            else if (response.equals(OK))
-            {
-                logger.info("ZMQ server is available. Starting Vert.x application...");
-            }
-        }
-        catch (Exception e)
-        {
-            logger.error("Failed to connect to ZMQ server: {}", e.getMessage());
-
-            logger.error("ZMQ server is not available. Exiting application.");
-
-            return;
         }
 
         var vertx = Vertx.vertx();
 
+        pluginWorkers.attach(vertx);
+
         vertx.deployVerticle(new ApiServer())
                 .compose(apiRes ->
                 {
@@ -86,7 +61,13 @@ public class Main
                 {
                     logger.info("ZMQ Messenger verticle deployed");
 
-                    return vertx.deployVerticle(PollingProcessor.class.getName(), new DeploymentOptions().setInstances(1));
+                    return vertx.deployVerticle(new PluginSupervisor(pluginWorkers));
+                })
+                .compose(supervisorRes ->
+                {
+                    logger.info("Plugin supervisor verticle deployed");
+
+                    return deployPollingProcessors(vertx);
                 })
                 .compose(pollingRes ->
                 {
@@ -108,7 +89,67 @@ public class Main
                 });
     }
 
-    // startGoPlugin starts go plugin using process builder
+    // Sends a health check to one plugin worker over its own endpoints and waits for the ok reply.
+    // @param worker The worker index.
+    // @return true if the worker answered, false if the application should not start.
+    private static boolean checkPluginWorker(int worker)
+    {
+        try (var context = ZMQ.context(1);
+             var push = context.socket(SocketType.PUSH);
+             var pull = context.socket(SocketType.PULL);)
+        {
+            push.bind(Util.workerAddress(Constants.ZMQ_PUSH_ADDRESS, worker));
+
+            pull.bind(Util.workerAddress(Constants.ZMQ_PULL_ADDRESS, worker));
+
+            push.setSendTimeOut(500);
+
+            push.send(Constants.PLUGIN_HEALTH_CHECK);
+
+            pull.setReceiveTimeOut(500);
+
+            var response = pull.recvStr();
+
+            if (response == null)
+            {
+                logger.error("ZMQ server of plugin worker {} is not responding. Port {} might be in use", worker, Util.workerAddress(Constants.ZMQ_PUSH_ADDRESS, worker));
+
+                pull.close();
+
+                System.exit(1);
+            }
+            else if (response.equals(Constants.PLUGIN_HEALTH_OK))
+            {
+                logger.info("ZMQ server of plugin worker {} is available.", worker);
+            }
+
+            return true;
+        }
+        catch (Exception e)
+        {
+            logger.error("Failed to connect to ZMQ server: {}", e.getMessage());
+
+            logger.error("ZMQ server is not available. Exiting application.");
+
+            return false;
+        }
+    }
+
+    // Deploys one PollingProcessor per shard, each with its shard index in the deployment config.
+    // @param vertx The Vert.x instance.
+    private static Future<CompositeFuture> deployPollingProcessors(Vertx vertx)
+    {
+        var deployments = new ArrayList<Future<String>>();
+
+        for (var shard = 0; shard < Constants.POLLING_PROCESSOR_INSTANCES; shard++)
+        {
+            deployments.add(vertx.deployVerticle(PollingProcessor.class.getName(), new DeploymentOptions().setConfig(new JsonObject().put(Constants.SHARD, shard))));
+        }
+
+        return Future.all(deployments);
+    }
+
+    // startGoPlugin starts the configured number of go plugin workers
     private static void startGoPlugin()
     {
         try
@@ -145,22 +186,11 @@ public class Main
                 System.exit(1);
             }
 
-            var processBuilder = new ProcessBuilder(goPlugin.getAbsolutePath());
-
-            goProcess = processBuilder.start();
-
-            Runtime.getRuntime().addShutdownHook(new Thread(() ->
-            {
-                if (goProcess.isAlive())
-                {
-                    goProcess.destroy();
-
-                    logger.info("go_plugin terminated on JVM shutdown.");
-                }
-            }));
+            pluginWorkers = new PluginWorkerPool(goPlugin, Constants.PLUGIN_WORKERS);
 
-            logger.info("go_plugin started successfully.");
+            pluginWorkers.start();
 
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> pluginWorkers.stop()));
         }
         catch (Exception e)
         {
@@ -0,0 +1,65 @@
+package io.vertx.nms;
+
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.nms.database.Database;
+import io.vertx.nms.messaging.ReplayDriver;
+import io.vertx.nms.polling.PollingProcessor;
+import io.vertx.nms.util.Constants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+
+// Replays a recording of plugin frames through the polling processors into the database, without the plugin,
+// scheduler or HTTP server. Usage: Replay <recording> [speed], speed as for ReplayDriver, 1 by default.
+public class Replay
+{
+    private static final Logger logger = LoggerFactory.getLogger(Replay.class);
+
+    public static void main(String[] args)
+    {
+        if (args.length < 1)
+        {
+            logger.error("Usage: Replay <recording> [speed]");
+
+            return;
+        }
+
+        var vertx = Vertx.vertx();
+
+        var driver = new ReplayDriver();
+
+        var config = new JsonObject()
+                .put(ReplayDriver.FILE, args[0])
+                .put(ReplayDriver.SPEED, args.length > 1 ? Double.parseDouble(args[1]) : 1.0);
+
+        vertx.deployVerticle(Database.class.getName())
+                .compose(databaseRes ->
+                {
+                    var deployments = new ArrayList<Future<String>>();
+
+                    for (var shard = 0; shard < Constants.POLLING_PROCESSOR_INSTANCES; shard++)
+                    {
+                        deployments.add(vertx.deployVerticle(PollingProcessor.class.getName(), new DeploymentOptions().setConfig(new JsonObject().put(Constants.SHARD, shard))));
+                    }
+
+                    return Future.all(deployments);
+                })
+                .compose(pollingRes -> vertx.deployVerticle(driver, new DeploymentOptions().setConfig(config)))
+                .compose(driverRes -> driver.completion())
+                .onSuccess(summary ->
+                {
+                    // Leaves the processors time to flush their last batches, which wait for INGEST_MAX_STALENESS at most.
+                    vertx.setTimer(Constants.INGEST_MAX_STALENESS * 2, id -> vertx.close());
+                })
+                .onFailure(err ->
+                {
+                    logger.error("Replay failed: {}", err.getMessage());
+
+                    vertx.close();
+                });
+    }
+}
@@ -7,6 +7,7 @@ import io.vertx.core.Future;
 import io.vertx.core.Promise;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
+import io.vertx.nms.polling.IngestBatch;
 import io.vertx.nms.util.Constants;
 import io.vertx.nms.util.Util;
 import io.vertx.pgclient.PgConnectOptions;
@@ -40,6 +41,10 @@ public class Database extends AbstractVerticle
 
     private static final String RETURNING_ID = "returning id";
 
+    private static final long INGEST_STATS_LOG_INTERVAL = 60_000;
+
+    private ProvisionDataWriter provisionDataWriter;
+
     @Override
     public void start(Promise<Void> startPromise)
     {
@@ -54,6 +59,8 @@ public class Database extends AbstractVerticle
 
         pgClient = PgPool.pool(vertx, connectOptions, poolOptions);
 
+        provisionDataWriter = new ProvisionDataWriter(vertx, pgClient, Constants.INGEST_STRATEGY);
+
         cache = Caffeine.newBuilder()
                 .maximumSize(20)
                 .expireAfterWrite(30, TimeUnit.MINUTES)
@@ -87,6 +94,8 @@ public class Database extends AbstractVerticle
             {
                 setupEventBusConsumer();
 
+                setupIngestConsumer();
+
                 logger.info(" DatabaseVerticle Eventbus is ready to listen");
 
                 startPromise.complete();
@@ -277,6 +286,30 @@ public class Database extends AbstractVerticle
         });
     }
 
+    // Sets up EventBus consumers for bulk ingestion of polling results and for ingestion statistics.
+    // Ingest requests carry the typed rows to store and are answered with the number of rows written.
+    private void setupIngestConsumer()
+    {
+        vertx.eventBus().<IngestBatch>localConsumer(Constants.EVENTBUS_DATABASE_INGEST_ADDRESS, message ->
+                provisionDataWriter.write(message.body().rows()).onComplete(result ->
+                {
+                    if (result.succeeded())
+                    {
+                        message.reply(new JsonObject().put(Constants.STATUS, Constants.SUCCESS).put(Constants.ROWS, result.result()));
+                    }
+                    else
+                    {
+                        logger.error("Polling data ingest failed: {}", result.cause().getMessage());
+
+                        message.fail(1, result.cause().getMessage());
+                    }
+                }));
+
+        vertx.eventBus().<JsonObject>localConsumer(Constants.EVENTBUS_DATABASE_INGEST_STATS_ADDRESS, message -> message.reply(provisionDataWriter.stats()));
+
+        vertx.setPeriodic(INGEST_STATS_LOG_INTERVAL, id -> logger.info("Ingest stats: {}", provisionDataWriter.stats().encode()));
+    }
+
     // Initializes the database by ensuring required tables exist.
     // Creates tables if they do not already exist and sets up necessary constraints.
     private Future<Object> init()
@@ -306,6 +339,8 @@ public class Database extends AbstractVerticle
                 ip TEXT NOT NULL UNIQUE,
                 port INT NOT NULL,
                 deleted BOOLEAN DEFAULT FALSE,
+                poll_interval INT NOT NULL DEFAULT 300,
+                priority SMALLINT NOT NULL DEFAULT 1,
                 FOREIGN KEY (credential_profile_id) REFERENCES credential_profile(id) ON DELETE SET NULL
             );
 
@@ -313,9 +348,14 @@ public class Database extends AbstractVerticle
                 id SERIAL PRIMARY KEY,
                 job_id INT NOT NULL REFERENCES provisioning_jobs(id) ON DELETE CASCADE,
                 data JSONB NOT NULL,
-                polled_at BIGINT
+                polled_at BIGINT,
+                metric_group TEXT
             );
 
+            ALTER TABLE provisioning_jobs ADD COLUMN IF NOT EXISTS poll_interval INT NOT NULL DEFAULT 300;
+            ALTER TABLE provisioning_jobs ADD COLUMN IF NOT EXISTS priority SMALLINT NOT NULL DEFAULT 1;
+            ALTER TABLE provision_data ADD COLUMN IF NOT EXISTS metric_group TEXT;
+
             CREATE INDEX IF NOT EXISTS idx_credential_profile_in_use_by ON credential_profile (in_use_by);
             CREATE INDEX IF NOT EXISTS idx_discovery_profiles_credential_id ON discovery_profiles (credential_profile_id);
             CREATE INDEX IF NOT EXISTS idx_prov_jobs_cred_id ON provisioning_jobs (credential_profile_id);
@@ -359,9 +399,12 @@ public class Database extends AbstractVerticle
     @Override
     public void stop(Promise<Void> stopPromise)
     {
+        var writerClosed = provisionDataWriter != null ? provisionDataWriter.close() : Future.<Void>succeededFuture();
+
         if (pgClient != null)
         {
-            pgClient.close().onComplete(ar ->
+            // The pool is closed once the writer has run the COPYs already queued.
+            writerClosed.eventually(() -> pgClient.close()).onComplete(ar ->
             {
                 if (ar.succeeded())
                 {
@@ -0,0 +1,283 @@
+package io.vertx.nms.database;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.nms.polling.PollRow;
+import io.vertx.nms.util.Constants;
+import io.vertx.sqlclient.Pool;
+import io.vertx.sqlclient.Tuple;
+import org.postgresql.PGConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Writes polling results into provision_data.
+// The copy strategy streams rows with COPY FROM STDIN (csv) over one dedicated JDBC connection.
+// The batch strategy sends a single fixed-shape insert through executeBatch on the pool, so the prepared statement is reused for every batch size.
+// The copy strategy writes the data column straight from the typed rows into the csv, without a JSON tree per row.
+public class ProvisionDataWriter
+{
+    private static final Logger logger = LoggerFactory.getLogger(ProvisionDataWriter.class);
+
+    public static final String STRATEGY_COPY = "copy";
+
+    public static final String STRATEGY_BATCH = "batch";
+
+    private static final String COPY_SQL = "COPY provision_data (job_id, data, polled_at, metric_group) FROM STDIN WITH (FORMAT csv)";
+
+    private static final String INSERT_SQL = "insert into provision_data (job_id, data, polled_at, metric_group) values ($1, $2, $3, $4)";
+
+    private static final String JDBC_URL = "jdbc:postgresql://" + Constants.DB_HOST + ":" + Constants.DB_PORT + "/" + Constants.DB_NAME;
+
+    private static final String BATCHES = "batches";
+
+    private static final String FAILURES = "failures";
+
+    private static final String ROWS_PER_SECOND = "rows_per_sec";
+
+    private static final String STRATEGY = "strategy";
+
+    // The mapper is the codec for nested values the typed rows keep as plain maps and lists.
+    private static final JsonFactory JSON_FACTORY = new JsonMapper().getFactory();
+
+    // Appends to the csv, doubling quotes as required inside a quoted csv field.
+    private static final class CsvQuotingWriter extends Writer
+    {
+        private final StringBuilder csv;
+
+        private CsvQuotingWriter(StringBuilder csv)
+        {
+            this.csv = csv;
+        }
+
+        @Override
+        public void write(char[] buffer, int offset, int length)
+        {
+            for (var i = offset; i < offset + length; i++)
+            {
+                if (buffer[i] == '"')
+                {
+                    csv.append('"');
+                }
+
+                csv.append(buffer[i]);
+            }
+        }
+
+        @Override
+        public void flush()
+        {
+        }
+
+        @Override
+        public void close()
+        {
+        }
+    }
+
+    private static class StrategyStats
+    {
+        long rows;
+
+        long batches;
+
+        long failures;
+
+        long nanos;
+    }
+
+    private final Vertx vertx;
+
+    private final Pool pgClient;
+
+    private final String strategy;
+
+    private final Map<String, StrategyStats> stats = new TreeMap<>();
+
+    // Only used from the ordered worker queue, see copy and close.
+    private Connection copyConnection;
+
+    public ProvisionDataWriter(Vertx vertx, Pool pgClient, String strategy)
+    {
+        this.vertx = vertx;
+
+        this.pgClient = pgClient;
+
+        this.strategy = strategy;
+
+        stats.put(STRATEGY_COPY, new StrategyStats());
+
+        stats.put(STRATEGY_BATCH, new StrategyStats());
+    }
+
+    // Writes the rows using the configured strategy. A failed COPY is retried once with the batch strategy.
+    // @param rows The rows with job id, data, polled at time and metric group.
+    // @return Future with the number of rows written.
+    public Future<Integer> write(List<PollRow> rows)
+    {
+        if (rows.isEmpty())
+        {
+            return Future.succeededFuture(0);
+        }
+
+        if (STRATEGY_COPY.equals(strategy))
+        {
+            return copy(rows).recover(error ->
+            {
+                logger.error("COPY into provision_data failed, falling back to batch insert: {}", error.getMessage());
+
+                return batch(rows);
+            });
+        }
+
+        return batch(rows);
+    }
+
+    // Streams the rows as csv through COPY FROM STDIN on the dedicated connection.
+    // Runs ordered on a worker thread so the connection is only ever used by one COPY at a time.
+    private Future<Integer> copy(List<PollRow> rows)
+    {
+        var startTime = System.nanoTime();
+
+        return vertx.<Integer>executeBlocking(() ->
+        {
+            var csv = new StringBuilder(rows.size() * 256);
+
+            var generator = JSON_FACTORY.createGenerator(new CsvQuotingWriter(csv));
+
+            // Rows are separate root values; the csv supplies the separation.
+            generator.setRootValueSeparator(null);
+
+            for (var row : rows)
+            {
+                csv.append(row.jobId()).append(",\"");
+
+                row.writeData(generator);
+
+                generator.flush();
+
+                csv.append("\",").append(row.polledAt())
+                        .append(',').append(row.metricGroup() == null ? "" : row.metricGroup()).append('\n');
+            }
+
+            try
+            {
+                return (int) connection().unwrap(PGConnection.class).getCopyAPI()
+                        .copyIn(COPY_SQL, new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8)));
+            }
+            catch (SQLException e)
+            {
+                closeCopyConnection();
+
+                throw e;
+            }
+        }, true).onComplete(result -> record(STRATEGY_COPY, result.succeeded() ? result.result() : -1, startTime));
+    }
+
+    // Inserts the rows with one fixed-shape prepared statement executed as a batch.
+    private Future<Integer> batch(List<PollRow> rows)
+    {
+        var startTime = System.nanoTime();
+
+        var tuples = new ArrayList<Tuple>(rows.size());
+
+        for (var row : rows)
+        {
+            tuples.add(Tuple.of(row.jobId(), row.data(), row.polledAt(), row.metricGroup()));
+        }
+
+        return pgClient.preparedQuery(INSERT_SQL).executeBatch(tuples)
+                .map(result -> rows.size())
+                .onComplete(result -> record(STRATEGY_BATCH, result.succeeded() ? result.result() : -1, startTime));
+    }
+
+    // Records the outcome of one write. A negative row count marks a failed write.
+    private void record(String name, int rows, long startTime)
+    {
+        var strategyStats = stats.get(name);
+
+        if (rows < 0)
+        {
+            strategyStats.failures++;
+
+            return;
+        }
+
+        strategyStats.rows += rows;
+
+        strategyStats.batches++;
+
+        strategyStats.nanos += System.nanoTime() - startTime;
+    }
+
+    // Returns rows written, batches, failures and rows per second of write time for each strategy.
+    public JsonObject stats()
+    {
+        var result = new JsonObject().put(STRATEGY, strategy);
+
+        stats.forEach((name, strategyStats) -> result.put(name, new JsonObject()
+                .put(Constants.ROWS, strategyStats.rows)
+                .put(BATCHES, strategyStats.batches)
+                .put(FAILURES, strategyStats.failures)
+                .put(ROWS_PER_SECOND, strategyStats.nanos == 0 ? 0 : strategyStats.rows * 1_000_000_000.0 / strategyStats.nanos)));
+
+        return result;
+    }
+
+    // Returns the dedicated COPY connection, opening it if needed. Only called from the ordered worker.
+    private Connection connection() throws SQLException
+    {
+        if (copyConnection == null || copyConnection.isClosed())
+        {
+            copyConnection = DriverManager.getConnection(JDBC_URL, Constants.DB_USER, Constants.DB_PASSWORD);
+
+            logger.info("Opened dedicated COPY connection to {}", JDBC_URL);
+        }
+
+        return copyConnection;
+    }
+
+    // Closes the dedicated COPY connection once the COPYs already queued have run, on the same ordered worker queue,
+    // so it is never closed under a running COPY.
+    // @return Future completed once the connection is closed.
+    public Future<Void> close()
+    {
+        return vertx.executeBlocking(() ->
+        {
+            closeCopyConnection();
+
+            return null;
+        }, true);
+    }
+
+    // Only called from the ordered worker.
+    private void closeCopyConnection()
+    {
+        try
+        {
+            if (copyConnection != null)
+            {
+                copyConnection.close();
+            }
+        }
+        catch (SQLException e)
+        {
+            logger.warn("Failed to close COPY connection: {}", e.getMessage());
+        }
+
+        copyConnection = null;
+    }
+}
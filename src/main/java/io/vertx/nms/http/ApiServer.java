@@ -25,6 +25,8 @@ public class ApiServer extends AbstractVerticle
 
     private static final String HTTP_PATH_PROVISION = "/provision/*";
 
+    private static final String HTTP_PATH_POLLING = "/polling/*";
+
     private static final String CREDENTIAL_PROFILE_ID_URL = "/:credentialProfileId";
 
     private static final String DISCOVERY_PROFILE_ID_URL = "/:discoveryProfileId";
@@ -37,6 +39,8 @@ public class ApiServer extends AbstractVerticle
 
     private static final String PROVISION_DELETE_URL = "/:discoveryProfileId";
 
+    private static final String PROVISION_UPDATE_URL = "/:job_id";
+
     private static final String PROVISION_TOP_ERROR_INTERFACES_URL = "/topError";
 
     private static final String PROVISION_TOP_SPEED_INTERFACES_URL = "/topSpeed";
@@ -47,6 +51,18 @@ public class ApiServer extends AbstractVerticle
 
     private static final String PROVISION_DEVICES_URL = "/devices";
 
+    private static final String POLLING_DISPATCH_URL = "/dispatch";
+
+    private static final String POLLING_INGEST_URL = "/ingest";
+
+    private static final String POLLING_PIPELINE_URL = "/pipeline";
+
+    private static final String POLLING_HEALTH_URL = "/health";
+
+    private static final String POLLING_CYCLES_URL = "/cycles";
+
+    private static final String POLLING_LATENCY_URL = "/latency";
+
     private static final String CREDENTIAL_PROFILE_ID = "credentialProfileId";
 
     private static final String MESSAGE_REQUIRED_CREDENTIAL_PROFILE_ID = "credential profile id is required.";
@@ -66,6 +82,8 @@ public class ApiServer extends AbstractVerticle
 
         mainRouter.route(HTTP_PATH_PROVISION).subRouter(createProvisionRouter());
 
+        mainRouter.route(HTTP_PATH_POLLING).subRouter(createPollingRouter());
+
         vertx.createHttpServer().requestHandler(mainRouter).listen(8080, http ->
         {
             if (http.succeeded())
@@ -337,6 +355,22 @@ public class ApiServer extends AbstractVerticle
             service.getProvisionData(jobId, context);
         });
 
+        provisionRouter.put(PROVISION_UPDATE_URL).handler(context->
+        {
+            var jobId = context.pathParam(Constants.DATABASE_JOB_ID);
+
+            logger.info("ProvisionHandler PUT /:job_id {}", jobId);
+
+            if (jobId == null || jobId.isEmpty())
+            {
+                context.response().setStatusCode(400).end(Constants.MESSAGE_REQUIRED_JOB_ID);
+
+                return;
+            }
+
+            service.updateProvisioningJob(jobId, context);
+        });
+
         provisionRouter.delete(PROVISION_DELETE_URL).handler(context->
         {
             var discoveryProfileId = context.pathParam(Constants.DISCOVERY_PROFILE_ID);
@@ -366,4 +400,24 @@ public class ApiServer extends AbstractVerticle
         return provisionRouter;
 
     }
+
+    // Creates a router exposing polling pipeline statistics.
+    public Router createPollingRouter()
+    {
+        var pollingRouter = Router.router(vertx);
+
+        pollingRouter.get(POLLING_DISPATCH_URL).handler(context -> service.getPollingStats(Constants.EVENTBUS_POLLING_DISPATCH_STATS_ADDRESS, context));
+
+        pollingRouter.get(POLLING_INGEST_URL).handler(context -> service.getPollingStats(Constants.EVENTBUS_DATABASE_INGEST_STATS_ADDRESS, context));
+
+        pollingRouter.get(POLLING_PIPELINE_URL).handler(service::getPipelineStats);
+
+        pollingRouter.get(POLLING_HEALTH_URL).handler(service::getDeviceHealth);
+
+        pollingRouter.get(POLLING_CYCLES_URL).handler(service::getPollingCycles);
+
+        pollingRouter.get(POLLING_LATENCY_URL).handler(service::getPollingLatency);
+
+        return pollingRouter;
+    }
 }
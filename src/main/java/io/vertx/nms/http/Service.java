@@ -1,11 +1,15 @@
 package io.vertx.nms.http;
 
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
 import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.eventbus.Message;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.RoutingContext;
 import io.vertx.nms.util.Constants;
+import io.vertx.nms.util.LatencyHistogram;
 import io.vertx.nms.util.Util;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -13,6 +17,11 @@ import org.slf4j.LoggerFactory;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 public class Service
 {
@@ -52,6 +61,50 @@ public class Service
 
     private static final String CLASS_CAST_ERROR = "can not be coerced to the expected class";
 
+    private static final String IN_FLIGHT = "in_flight";
+
+    private static final String QUEUED = "queued";
+
+    private static final String SHARDS = "shards";
+
+    private static final String ZMQ = "zmq";
+
+    private static final String DEVICES = "devices";
+
+    private static final String CYCLES = "cycles";
+
+    private static final String WINDOW = "window";
+
+    private static final String OVERRUN_POLICY = "overrun_policy";
+
+    private static final String CYCLE_ID = "cycle_id";
+
+    private static final String OVERRUN = "overrun";
+
+    private static final String FINISHED_AT = "finished_at";
+
+    private static final String OUTSTANDING = "outstanding";
+
+    private static final String LATENCY = "latency";
+
+    private static final String P50 = "p50";
+
+    private static final String P99 = "p99";
+
+    private static final String P90 = "p90";
+
+    private static final String COUNT = "count";
+
+    private static final String STAGES = "stages";
+
+    private static final String PLUGIN_TYPES = "plugin_types";
+
+    private static final String STALE_REPLIES = "stale_replies";
+
+    private static final List<String> CYCLE_COUNTERS = List.of("dispatched", "answered", "timed_out", "dropped", OUTSTANDING, "overruns");
+
+    private static final List<String> HEALTH_COUNTERS = List.of("closed", "open", "half_open", "skipped", "timeouts");
+
     private final StringBuilder reusableQueryBuilder = new StringBuilder();
 
     private final JsonObject reusableQueryRequest = new JsonObject();
@@ -184,7 +237,13 @@ public class Service
                             .put(Constants.TABLE_NAME, tableName)
                             .put(Constants.OPERATION, Constants.UPDATE)
                             .put(Constants.DATA, requestBody)
-                            .put(Constants.CONDITION, reusableCondition.put(Constants.ID, profileId)), 200);
+                            .put(Constants.CONDITION, reusableCondition.put(Constants.ID, profileId)), 200, result ->
+                    {
+                        if (Constants.DATABASE_TABLE_CREDENTIAL_PROFILE.equals(tableName))
+                        {
+                            publishDeviceChange(Constants.UPDATE, Constants.DATABASE_CREDENTIAL_PROFILE_ID, profileId);
+                        }
+                    });
                 }
             }
         }
@@ -310,6 +369,16 @@ public class Service
     // @param request The JSON object containing the query details.
     // @param successStatusCode The HTTP status code to return on success.
     private void executeQuery(RoutingContext context, JsonObject request, int successStatusCode)
+    {
+        executeQuery(context, request, successStatusCode, null);
+    }
+
+    // Executes a query on the database and runs the given handler once it succeeds.
+    // @param context The RoutingContext containing the request and response.
+    // @param request The JSON object containing the query details.
+    // @param successStatusCode The HTTP status code to return on success.
+    // @param onSuccess Handler called with the database reply on success, may be null.
+    private void executeQuery(RoutingContext context, JsonObject request, int successStatusCode, Handler<JsonObject> onSuccess)
     {
         reusableQueryBuilder.setLength(0);
 
@@ -322,6 +391,11 @@ public class Service
             if (reply.succeeded())
             {
                 context.response().setStatusCode(successStatusCode).end(reply.result().body().toString());
+
+                if (onSuccess != null)
+                {
+                    onSuccess.handle(reply.result().body());
+                }
             }
             else
             {
@@ -546,6 +620,24 @@ public class Service
     // @param context The RoutingContext containing the request and response.
     public void updateProvisionStatus(String discoveryProfileId, RoutingContext context)
     {
+        var pollInterval = getPollInterval(context);
+
+        if (pollInterval == null)
+        {
+            context.response().setStatusCode(400).end(Constants.MESSAGE_INVALID_POLL_INTERVAL);
+
+            return;
+        }
+
+        var priority = getPriority(context);
+
+        if (priority == null)
+        {
+            context.response().setStatusCode(400).end(Constants.MESSAGE_INVALID_PRIORITY);
+
+            return;
+        }
+
         try
         {
             reusableQueryBuilder.setLength(0);
@@ -594,7 +686,9 @@ public class Service
                                 .put(Constants.DATA, new JsonObject()
                                         .put(Constants.DATABASE_CREDENTIAL_PROFILE_ID, credentialProfileId)
                                         .put(Constants.IP, data.getString(Constants.IP))
-                                        .put(Constants.PORT, data.getLong(Constants.PORT))), reusableQueryBuilder);
+                                        .put(Constants.PORT, data.getLong(Constants.PORT))
+                                        .put(Constants.DATABASE_POLL_INTERVAL, pollInterval)
+                                        .put(Constants.DATABASE_PRIORITY, priority)), reusableQueryBuilder);
 
                         reusableRequest.clear();
 
@@ -620,6 +714,8 @@ public class Service
                                         apiResponse.clear();
 
                                         context.response().setStatusCode(200).end(apiResponse.put(Constants.STATUS, Constants.SUCCESS).put(Constants.MESSAGE, PROVISION_UPDATE_SUCCESSFUL).put(Constants.ID, insertReply.result().body().getLong(Constants.ID)).encode());
+
+                                        publishDeviceChange(Constants.INSERT, Constants.DATABASE_JOB_ID, insertReply.result().body().getLong(Constants.ID));
                                     }
                                     else
                                     {
@@ -664,7 +760,7 @@ public class Service
 
                                                 reusableQueryRequest.clear();
 
-                                                var updateStatusQueryBuilder = QueryBuilder.buildQuery(reusableQueryRequest.put(Constants.TABLE_NAME, Constants.DATABASE_TABLE_PROVISIONING_JOBS).put(Constants.OPERATION, Constants.UPDATE).put(Constants.DATA, new JsonObject().put(Constants.DELETED, false)).put(Constants.CONDITION, new JsonObject().put(Constants.ID, existingId)), reusableQueryBuilder);
+                                                var updateStatusQueryBuilder = QueryBuilder.buildQuery(reusableQueryRequest.put(Constants.TABLE_NAME, Constants.DATABASE_TABLE_PROVISIONING_JOBS).put(Constants.OPERATION, Constants.UPDATE).put(Constants.DATA, new JsonObject().put(Constants.DELETED, false).put(Constants.DATABASE_POLL_INTERVAL, pollInterval).put(Constants.DATABASE_PRIORITY, priority)).put(Constants.CONDITION, new JsonObject().put(Constants.ID, existingId)), reusableQueryBuilder);
 
                                                 reusableRequest.clear();
 
@@ -689,6 +785,8 @@ public class Service
                                                                                 .put(Constants.MESSAGE, PROVISION_UPDATE_SUCCESSFUL)
                                                                                 .put(Constants.ID, existingId)
                                                                                 .encode());
+
+                                                                publishDeviceChange(Constants.INSERT, Constants.DATABASE_JOB_ID, existingId);
                                                             }
                                                             else
                                                             {
@@ -754,7 +852,149 @@ public class Service
         }
     }
 
-    // Fetches provision data for a given job ID.
+    // Updates the poll interval and/or priority of an active provisioning job. Only the fields present in the body are
+    // changed, the other one keeps its stored value.
+    // @param jobId The ID of the provisioning job to update.
+    // @param context The RoutingContext containing the request and response.
+    public void updateProvisioningJob(String jobId, RoutingContext context)
+    {
+        var data = new JsonObject();
+
+        if (hasField(context, Constants.DATABASE_POLL_INTERVAL))
+        {
+            var pollInterval = getPollInterval(context);
+
+            if (pollInterval == null)
+            {
+                context.response().setStatusCode(400).end(Constants.MESSAGE_INVALID_POLL_INTERVAL);
+
+                return;
+            }
+
+            data.put(Constants.DATABASE_POLL_INTERVAL, pollInterval);
+        }
+
+        if (hasField(context, Constants.DATABASE_PRIORITY))
+        {
+            var priority = getPriority(context);
+
+            if (priority == null)
+            {
+                context.response().setStatusCode(400).end(Constants.MESSAGE_INVALID_PRIORITY);
+
+                return;
+            }
+
+            data.put(Constants.DATABASE_PRIORITY, priority);
+        }
+
+        if (data.isEmpty())
+        {
+            context.response().setStatusCode(400).end(Constants.MESSAGE_REQUIRED_JOB_FIELDS);
+
+            return;
+        }
+
+        try
+        {
+            var parsedId = Long.parseLong(jobId);
+
+            reusableQueryRequest.clear();
+
+            reusableCondition.clear();
+
+            executeQuery(context, reusableQueryRequest
+                    .put(Constants.TABLE_NAME, Constants.DATABASE_TABLE_PROVISIONING_JOBS)
+                    .put(Constants.OPERATION, Constants.UPDATE)
+                    .put(Constants.DATA, data)
+                    .put(Constants.CONDITION, reusableCondition.put(Constants.ID, parsedId).put(Constants.DELETED, false)), 200, result ->
+            {
+                if (result.getLong(Constants.ID) != null)
+                {
+                    publishDeviceChange(Constants.INSERT, Constants.DATABASE_JOB_ID, parsedId);
+                }
+            });
+        }
+        catch (NumberFormatException e)
+        {
+            logger.error("Invalid job ID: {}", jobId);
+
+            context.response().setStatusCode(400).end(Constants.MESSAGE_INVALID_JOB_ID);
+        }
+    }
+
+    // @param context The RoutingContext containing the request body.
+    // @param field The field to look for.
+    // @return Whether the request body is a JSON object with a non-null value for the field.
+    private boolean hasField(RoutingContext context, String field)
+    {
+        try
+        {
+            var body = context.body() == null || context.body().length() == 0 ? null : context.body().asJsonObject();
+
+            return body != null && body.getValue(field) != null;
+        }
+        catch (Exception e)
+        {
+            return false;
+        }
+    }
+
+    // Reads the optional poll_interval field from the request body.
+    // @param context The RoutingContext containing the request body.
+    // @return The poll interval in seconds, the default interval if the body has none, or null if the value is invalid.
+    private Integer getPollInterval(RoutingContext context)
+    {
+        try
+        {
+            var body = context.body() == null || context.body().length() == 0 ? null : context.body().asJsonObject();
+
+            if (body == null || body.getValue(Constants.DATABASE_POLL_INTERVAL) == null)
+            {
+                return Constants.DEFAULT_POLL_INTERVAL;
+            }
+
+            if (!(body.getValue(Constants.DATABASE_POLL_INTERVAL) instanceof Integer pollInterval) || pollInterval < Constants.MIN_POLL_INTERVAL || pollInterval > Constants.MAX_POLL_INTERVAL)
+            {
+                return null;
+            }
+
+            return pollInterval;
+        }
+        catch (Exception e)
+        {
+            return null;
+        }
+    }
+
+    // Reads the optional priority field from the request body, one of high, normal or low.
+    // @param context The RoutingContext containing the request body.
+    // @return The priority level to store, 0 being the highest, the default level if the field is absent, or null if it is invalid.
+    private Integer getPriority(RoutingContext context)
+    {
+        try
+        {
+            var body = context.body() == null || context.body().length() == 0 ? null : context.body().asJsonObject();
+
+            if (body == null || body.getValue(Constants.DATABASE_PRIORITY) == null)
+            {
+                return Constants.DEFAULT_PRIORITY;
+            }
+
+            if (!(body.getValue(Constants.DATABASE_PRIORITY) instanceof String priority) || !Constants.PRIORITIES.contains(priority.toLowerCase()))
+            {
+                return null;
+            }
+
+            return Constants.PRIORITIES.indexOf(priority.toLowerCase());
+        }
+        catch (Exception e)
+        {
+            return null;
+        }
+    }
+
+    // Fetches provision data for a given job ID, optionally only one metric group given by the metric_group query parameter.
     // @param jobId The ID of the job to fetch data for.
     // @param context The RoutingContext containing the request and response.
     public void getProvisionData(String jobId, RoutingContext context)
@@ -769,12 +1009,20 @@ public class Service
 
             reusableCondition.clear();
 
+            var metricGroup = context.queryParams().get(Constants.DATABASE_METRIC_GROUP);
+
+            if (metricGroup != null)
+            {
+                reusableCondition.put(Constants.DATABASE_METRIC_GROUP, metricGroup);
+            }
+
             var queryResult = QueryBuilder.buildQuery(reusableQueryRequest
                     .put(Constants.OPERATION, Constants.SELECT)
                     .put(Constants.TABLE_NAME, Constants.DATABASE_TABLE_PROVISION_DATA)
                     .put(Constants.COLUMNS, reusableColumn
                             .add(Constants.DATA)
-                            .add(Constants.POLLED_AT))
+                            .add(Constants.POLLED_AT)
+                            .add(Constants.DATABASE_METRIC_GROUP))
                     .put(Constants.CONDITION, reusableCondition
                             .put(Constants.DATABASE_JOB_ID, Long.parseLong(jobId))),reusableQueryBuilder);
 
@@ -807,6 +1055,7 @@ public class Service
                         var rowObj = (JsonObject) row;
 
                         responseArray.add(new JsonObject()
+                                .put(Constants.DATABASE_METRIC_GROUP, rowObj.getString(Constants.DATABASE_METRIC_GROUP))
                                 .put(Constants.DATA, rowObj.getJsonObject(Constants.DATA))
                                 .put(Constants.POLLED_AT, DATE_FORMATTER.format(new java.util.Date(rowObj.getLong(Constants.POLLED_AT))))
                         );
@@ -1116,6 +1365,7 @@ public class Service
 
                             context.response().setStatusCode(204).end();
 
+                            publishDeviceChange(Constants.DELETE, Constants.DATABASE_JOB_ID, parsedId);
                         }
                         else
                         {
@@ -1142,4 +1392,275 @@ public class Service
             context.response().setStatusCode(500).end(Constants.MESSAGE_INTERNAL_SERVER_ERROR);
         }
     }
+
+    // Fetches statistics from a polling component and responds with them.
+    // @param address The event bus address the polling component answers statistics requests on.
+    // @param context The RoutingContext containing the request and response.
+    public void getPollingStats(String address, RoutingContext context)
+    {
+        vertx.eventBus().<JsonObject>request(address, new JsonObject(), reply ->
+        {
+            if (reply.succeeded())
+            {
+                context.response().setStatusCode(200).end(reply.result().body().encode());
+            }
+            else
+            {
+                logger.error("Failed to fetch polling stats from {}: {}", address, reply.cause().getMessage());
+
+                context.response().setStatusCode(503).end(Constants.MESSAGE_INTERNAL_SERVER_ERROR);
+            }
+        });
+    }
+
+    // Fetches in-flight and queue statistics from every polling processor shard and from the ZMQ messenger.
+    // @param context The RoutingContext containing the request and response.
+    public void getPipelineStats(RoutingContext context)
+    {
+        var shardStats = new ArrayList<Future<Message<JsonObject>>>();
+
+        for (var shard = 0; shard < Constants.POLLING_PROCESSOR_INSTANCES; shard++)
+        {
+            shardStats.add(vertx.eventBus().request(Util.shardAddress(Constants.EVENTBUS_POLLING_PIPELINE_STATS_ADDRESS, shard), new JsonObject()));
+        }
+
+        var zmqStats = vertx.eventBus().<JsonObject>request(Constants.EVENTBUS_ZMQ_STATS_ADDRESS, new JsonObject());
+
+        Future.all(Future.all(shardStats), zmqStats).onComplete(result ->
+        {
+            if (result.succeeded())
+            {
+                var shards = new JsonArray();
+
+                var inFlight = 0;
+
+                var queued = 0;
+
+                for (var shard : shardStats)
+                {
+                    var stats = shard.result().body();
+
+                    inFlight += stats.getInteger(IN_FLIGHT);
+
+                    queued += stats.getInteger(QUEUED);
+
+                    shards.add(stats);
+                }
+
+                apiResponse.clear();
+
+                context.response().setStatusCode(200).end(apiResponse
+                        .put(IN_FLIGHT, inFlight)
+                        .put(QUEUED, queued)
+                        .put(SHARDS, shards)
+                        .put(ZMQ, zmqStats.result().body())
+                        .encode());
+            }
+            else
+            {
+                logger.error("Failed to fetch pipeline stats: {}", result.cause().getMessage());
+
+                context.response().setStatusCode(503).end(Constants.MESSAGE_INTERNAL_SERVER_ERROR);
+            }
+        });
+    }
+
+    // Collects the circuit breaker state of every processor shard.
+    // Counters are summed across shards and the devices whose breaker is not closed are listed together.
+    // @param context The routing context of the request.
+    public void getDeviceHealth(RoutingContext context)
+    {
+        var shardHealth = new ArrayList<Future<Message<JsonObject>>>();
+
+        for (var shard = 0; shard < Constants.POLLING_PROCESSOR_INSTANCES; shard++)
+        {
+            shardHealth.add(vertx.eventBus().request(Util.shardAddress(Constants.EVENTBUS_POLLING_HEALTH_ADDRESS, shard), new JsonObject()));
+        }
+
+        Future.all(shardHealth).onComplete(result ->
+        {
+            if (result.succeeded())
+            {
+                apiResponse.clear();
+
+                var devices = new JsonArray();
+
+                HEALTH_COUNTERS.forEach(counter -> apiResponse.put(counter, 0L));
+
+                for (var shard : shardHealth)
+                {
+                    var health = shard.result().body();
+
+                    HEALTH_COUNTERS.forEach(counter -> apiResponse.put(counter, apiResponse.getLong(counter) + health.getLong(counter)));
+
+                    devices.addAll(health.getJsonArray(DEVICES));
+                }
+
+                context.response().setStatusCode(200).end(apiResponse.put(DEVICES, devices).encode());
+            }
+            else
+            {
+                logger.error("Failed to fetch device health: {}", result.cause().getMessage());
+
+                context.response().setStatusCode(503).end(Constants.MESSAGE_INTERNAL_SERVER_ERROR);
+            }
+        });
+    }
+
+    // Collects the poll cycle statistics of every processor shard and merges them per cycle id.
+    // Counters are summed, a cycle has overrun if it overran on any shard, and the shard latency histograms are
+    // merged before the percentiles are taken so p50 and p99 hold for the whole fleet.
+    // @param context The routing context of the request.
+    public void getPollingCycles(RoutingContext context)
+    {
+        var shardCycles = new ArrayList<Future<Message<JsonObject>>>();
+
+        for (var shard = 0; shard < Constants.POLLING_PROCESSOR_INSTANCES; shard++)
+        {
+            shardCycles.add(vertx.eventBus().request(Util.shardAddress(Constants.EVENTBUS_POLLING_CYCLES_ADDRESS, shard), new JsonObject()));
+        }
+
+        Future.all(shardCycles).onComplete(result ->
+        {
+            if (result.succeeded())
+            {
+                var merged = new TreeMap<Long, JsonObject>();
+
+                var latencies = new HashMap<Long, LatencyHistogram>();
+
+                for (var shard : shardCycles)
+                {
+                    for (var entry : shard.result().body().getJsonArray(CYCLES))
+                    {
+                        var cycle = (JsonObject) entry;
+
+                        var cycleId = cycle.getLong(CYCLE_ID);
+
+                        var latency = LatencyHistogram.fromJson((JsonArray) cycle.remove(LATENCY));
+
+                        var total = merged.putIfAbsent(cycleId, cycle);
+
+                        if (total == null)
+                        {
+                            latencies.put(cycleId, latency);
+
+                            continue;
+                        }
+
+                        CYCLE_COUNTERS.forEach(counter -> total.put(counter, total.getLong(counter) + cycle.getLong(counter)));
+
+                        total.put(OVERRUN, total.getBoolean(OVERRUN) || cycle.getBoolean(OVERRUN));
+
+                        total.put(FINISHED_AT, total.getLong(OUTSTANDING) > 0 ? 0 : Math.max(total.getLong(FINISHED_AT), cycle.getLong(FINISHED_AT)));
+
+                        latencies.get(cycleId).merge(latency);
+                    }
+                }
+
+                var cycles = new JsonArray();
+
+                merged.forEach((cycleId, cycle) -> cycles.add(cycle
+                        .put(P50, latencies.get(cycleId).percentile(50))
+                        .put(P99, latencies.get(cycleId).percentile(99))));
+
+                apiResponse.clear();
+
+                context.response().setStatusCode(200).end(apiResponse
+                        .put(WINDOW, Constants.POLLING_CYCLE_WINDOW)
+                        .put(OVERRUN_POLICY, Constants.POLLING_OVERRUN_POLICY)
+                        .put(CYCLES, cycles)
+                        .encode());
+            }
+            else
+            {
+                logger.error("Failed to fetch poll cycles: {}", result.cause().getMessage());
+
+                context.response().setStatusCode(503).end(Constants.MESSAGE_INTERNAL_SERVER_ERROR);
+            }
+        });
+    }
+
+    // Collects the poll latency statistics of every processor shard.
+    // Stage and plugin type histograms are merged across shards before the percentiles are taken, device figures are
+    // listed as reported since every device belongs to exactly one shard.
+    // @param context The routing context of the request.
+    public void getPollingLatency(RoutingContext context)
+    {
+        var shardLatency = new ArrayList<Future<Message<JsonObject>>>();
+
+        for (var shard = 0; shard < Constants.POLLING_PROCESSOR_INSTANCES; shard++)
+        {
+            shardLatency.add(vertx.eventBus().request(Util.shardAddress(Constants.EVENTBUS_POLLING_LATENCY_ADDRESS, shard), new JsonObject()));
+        }
+
+        Future.all(shardLatency).onComplete(result ->
+        {
+            if (result.succeeded())
+            {
+                var stages = new TreeMap<String, LatencyHistogram>();
+
+                var pluginTypes = new TreeMap<String, LatencyHistogram>();
+
+                var devices = new JsonArray();
+
+                var staleReplies = 0L;
+
+                for (var shard : shardLatency)
+                {
+                    var latency = shard.result().body().getJsonObject(LATENCY);
+
+                    staleReplies += latency.getLong(STALE_REPLIES);
+
+                    mergeHistograms(latency.getJsonObject(STAGES), stages);
+
+                    mergeHistograms(latency.getJsonObject(PLUGIN_TYPES), pluginTypes);
+
+                    devices.addAll(latency.getJsonArray(DEVICES));
+                }
+
+                apiResponse.clear();
+
+                context.response().setStatusCode(200).end(apiResponse
+                        .put(STALE_REPLIES, staleReplies)
+                        .put(STAGES, percentiles(stages))
+                        .put(PLUGIN_TYPES, percentiles(pluginTypes))
+                        .put(DEVICES, devices)
+                        .encode());
+            }
+            else
+            {
+                logger.error("Failed to fetch poll latency: {}", result.cause().getMessage());
+
+                context.response().setStatusCode(503).end(Constants.MESSAGE_INTERNAL_SERVER_ERROR);
+            }
+        });
+    }
+
+    // Adds every named histogram of a shard to the merged histogram of the same name.
+    private static void mergeHistograms(JsonObject histograms, Map<String, LatencyHistogram> merged)
+    {
+        histograms.forEach(entry -> merged.computeIfAbsent(entry.getKey(), key -> new LatencyHistogram()).merge(LatencyHistogram.fromJson((JsonArray) entry.getValue())));
+    }
+
+    private static JsonObject percentiles(Map<String, LatencyHistogram> histograms)
+    {
+        var result = new JsonObject();
+
+        histograms.forEach((name, histogram) -> result.put(name, new JsonObject()
+                .put(COUNT, histogram.count())
+                .put(P50, histogram.percentile(50))
+                .put(P90, histogram.percentile(90))
+                .put(P99, histogram.percentile(99))));
+
+        return result;
+    }
+
+    // Publishes a provisioning change so the polling device registry can update itself without a full reload.
+    // @param operation insert or delete for a provisioning job, update for a credential profile.
+    // @param key The field holding the changed id, either job_id or credential_profile_id.
+    // @param id The id of the changed provisioning job or credential profile.
+    private void publishDeviceChange(String operation, String key, long id)
+    {
+        vertx.eventBus().publish(Constants.EVENTBUS_DEVICE_REGISTRY_ADDRESS, new JsonObject().put(Constants.OPERATION, operation).put(key, id));
+    }
 }
\ No newline at end of file
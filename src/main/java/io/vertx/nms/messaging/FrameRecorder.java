@@ -0,0 +1,336 @@
+package io.vertx.nms.messaging;
+
+import io.vertx.core.json.JsonObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Appends the raw frames exchanged with the plugin to a local file, for replaying real traffic later.
+// The file starts with a magic number and format version; every frame follows as its direction byte, the time it was
+// sent or received in microseconds since the epoch, its length and its bytes, exactly as they were on the wire.
+// Every run starts with a RUN_START frame and is appended to the same file, after the file has been checked to be a
+// recording and cut back to its last complete frame, so a frame cut off by a crash does not hide the runs after it.
+// Frames are handed to a writer thread through a bounded queue, so recording never blocks the event loop or the
+// receiver; frames arriving while the queue is full or once the file has reached its size limit are dropped and counted.
+public class FrameRecorder implements AutoCloseable
+{
+    private static final Logger logger = LoggerFactory.getLogger(FrameRecorder.class);
+
+    public static final byte REQUEST = 0;
+
+    public static final byte REPLY = 1;
+
+    // Marks the start of a run of the recorder, with no bytes, so a replay can leave out the time between runs.
+    public static final byte RUN_START = 2;
+
+    // "NMSR"
+    private static final int MAGIC = 0x4E4D5352;
+
+    private static final byte FORMAT_VERSION = 1;
+
+    private static final int FILE_HEADER_BYTES = Integer.BYTES + 1;
+
+    private static final int FRAME_HEADER_BYTES = 1 + Long.BYTES + Integer.BYTES;
+
+    // Larger frames are not recorded, and a larger length read back means the recording is corrupt.
+    private static final int MAX_FRAME_BYTES = 64 << 20;
+
+    private static final int QUEUE_CAPACITY = 65_536;
+
+    private static final long FLUSH_INTERVAL_MS = 1_000;
+
+    private static final String WRITER_THREAD_NAME = "zmq-recorder";
+
+    private static final String FILE = "file";
+
+    private static final String RECORDED = "recorded";
+
+    private static final String DROPPED = "dropped";
+
+    private static final String BYTES = "bytes";
+
+    private static final String MAX_BYTES = "max_bytes";
+
+    // One recorded frame.
+    // @param direction REQUEST for frames sent to the plugin, REPLY for frames received from it, RUN_START for the
+    //                  marker written as the recorder opens.
+    // @param timestamp Microseconds since the epoch.
+    public record Frame(byte direction, long timestamp, byte[] bytes) {}
+
+    private final Path file;
+
+    private final long maxBytes;
+
+    private final DataOutputStream out;
+
+    private final ArrayBlockingQueue<Frame> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+
+    private final Thread writer;
+
+    // Epoch and monotonic time at start, frame times are taken from the monotonic clock so they never go backwards.
+    private final long startMicros = System.currentTimeMillis() * 1_000;
+
+    private final long startNanos = System.nanoTime();
+
+    private final LongAdder recorded = new LongAdder();
+
+    private final LongAdder dropped = new LongAdder();
+
+    // Size of the file once every queued frame is written.
+    private final AtomicLong bytes = new AtomicLong();
+
+    private volatile boolean recording = true;
+
+    // @param file The recording, created if missing and appended to otherwise.
+    // @param maxBytes The size of the file above which no more frames are recorded.
+    // @throws IOException if the file cannot be opened, or exists and is not a recording or is corrupt.
+    public FrameRecorder(Path file, long maxBytes) throws IOException
+    {
+        this.file = file;
+
+        this.maxBytes = maxBytes;
+
+        var length = Files.exists(file) ? validLength(file) : 0;
+
+        var channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+
+        try
+        {
+            if (channel.size() > length)
+            {
+                logger.warn("Truncating recording {} from {} to {} bytes, the end of its last complete frame", file, channel.size(), length);
+
+                channel.truncate(length);
+            }
+
+            channel.position(length);
+        }
+        catch (IOException e)
+        {
+            channel.close();
+
+            throw e;
+        }
+
+        this.out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+
+        if (length == 0)
+        {
+            out.writeInt(MAGIC);
+
+            out.writeByte(FORMAT_VERSION);
+
+            length = FILE_HEADER_BYTES;
+        }
+
+        out.writeByte(RUN_START);
+
+        out.writeLong(startMicros);
+
+        out.writeInt(0);
+
+        out.flush();
+
+        bytes.set(length + FRAME_HEADER_BYTES);
+
+        writer = new Thread(this::writeLoop, WRITER_THREAD_NAME);
+
+        writer.setDaemon(true);
+
+        writer.start();
+
+        logger.info("Recording plugin frames to {}", file.toAbsolutePath());
+    }
+
+    // Records a frame as of now. Safe to call from any thread; the frame must not be modified afterwards.
+    public void record(byte direction, byte[] frame)
+    {
+        var size = FRAME_HEADER_BYTES + frame.length;
+
+        if (!recording || frame.length > MAX_FRAME_BYTES)
+        {
+            dropped.increment();
+        }
+        else if (bytes.addAndGet(size) > maxBytes)
+        {
+            bytes.addAndGet(-size);
+
+            dropped.increment();
+        }
+        else if (!queue.offer(new Frame(direction, startMicros + (System.nanoTime() - startNanos) / 1_000, frame)))
+        {
+            bytes.addAndGet(-size);
+
+            dropped.increment();
+        }
+    }
+
+    public JsonObject stats()
+    {
+        return new JsonObject()
+                .put(FILE, file.toString())
+                .put(RECORDED, recorded.sum())
+                .put(DROPPED, dropped.sum())
+                .put(BYTES, bytes.get())
+                .put(MAX_BYTES, maxBytes);
+    }
+
+    // Writes the frames still queued and closes the file.
+    @Override
+    public void close()
+    {
+        recording = false;
+
+        try
+        {
+            writer.join();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // @return The length of the file up to the end of its last complete frame, 0 if it is empty.
+    // @throws IOException if the file is not a recording or is corrupt.
+    private static long validLength(Path file) throws IOException
+    {
+        if (Files.size(file) == 0)
+        {
+            return 0;
+        }
+
+        try (var reader = new Reader(file))
+        {
+            while (reader.next() != null)
+            {
+                // Reads up to the last complete frame.
+            }
+
+            return reader.position;
+        }
+    }
+
+    private void writeLoop()
+    {
+        try (out)
+        {
+            while (recording || !queue.isEmpty())
+            {
+                var frame = queue.poll(FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+
+                if (frame == null)
+                {
+                    out.flush();
+
+                    continue;
+                }
+
+                out.writeByte(frame.direction());
+
+                out.writeLong(frame.timestamp());
+
+                out.writeInt(frame.bytes().length);
+
+                out.write(frame.bytes());
+
+                recorded.increment();
+            }
+        }
+        catch (IOException e)
+        {
+            recording = false;
+
+            logger.error("Failed to write recording {}, recording stopped: {}", file, e.getMessage());
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Reads a recording frame by frame.
+    public static class Reader implements AutoCloseable
+    {
+        private final Path file;
+
+        private final DataInputStream in;
+
+        // Offset of the end of the last complete frame read.
+        private long position = FILE_HEADER_BYTES;
+
+        // @throws IOException if the file cannot be read or is not a recording.
+        public Reader(Path file) throws IOException
+        {
+            this.file = file;
+
+            in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)));
+
+            try
+            {
+                if (in.readInt() != MAGIC || in.readByte() != FORMAT_VERSION)
+                {
+                    throw new IOException("Not a frame recording: " + file);
+                }
+            }
+            catch (IOException e)
+            {
+                in.close();
+
+                throw e instanceof EOFException ? new IOException("Not a frame recording: " + file) : e;
+            }
+        }
+
+        // @return The next frame, or null at the end of the recording, including a frame cut off by a crash.
+        // @throws IOException if the file cannot be read or a frame header is corrupt.
+        public Frame next() throws IOException
+        {
+            try
+            {
+                var direction = in.readByte();
+
+                var timestamp = in.readLong();
+
+                var length = in.readInt();
+
+                if (direction < REQUEST || direction > RUN_START || length < 0 || length > MAX_FRAME_BYTES)
+                {
+                    throw new IOException("Corrupt frame recording " + file + " at byte " + position);
+                }
+
+                var frame = new byte[length];
+
+                in.readFully(frame);
+
+                position += FRAME_HEADER_BYTES + length;
+
+                return new Frame(direction, timestamp, frame);
+            }
+            catch (EOFException e)
+            {
+                return null;
+            }
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            in.close();
+        }
+    }
+}
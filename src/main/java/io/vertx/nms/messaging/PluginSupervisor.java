@@ -0,0 +1,128 @@
+package io.vertx.nms.messaging;
+
+import io.vertx.core.AbstractVerticle;
+import io.vertx.core.Promise;
+import io.vertx.core.json.JsonObject;
+import io.vertx.nms.util.Constants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+// Keeps the plugin workers running after startup.
+// Every PLUGIN_HEARTBEAT_INTERVAL the messenger sends a health check to each worker over its own request socket;
+// a worker whose process is alive but has not answered for PLUGIN_HEARTBEAT_TIMEOUT is considered hung and killed.
+// Exited workers, crashed or killed, are started again after PLUGIN_RESTART_DELAY doubled for every restart in a
+// row, up to PLUGIN_MAX_RESTART_DELAY. The backoff is reset once a worker has answered heartbeats for
+// PLUGIN_HEARTBEAT_TIMEOUT after its restart.
+public class PluginSupervisor extends AbstractVerticle
+{
+    private static final Logger logger = LoggerFactory.getLogger(PluginSupervisor.class);
+
+    private static final int MAX_BACKOFF_SHIFT = 16;
+
+    private final PluginWorkerPool pool;
+
+    private final int[] restarts;
+
+    private final long[] upSince;
+
+    public PluginSupervisor(PluginWorkerPool pool)
+    {
+        this.pool = pool;
+
+        this.restarts = new int[pool.size()];
+
+        this.upSince = new long[pool.size()];
+    }
+
+    @Override
+    public void start(Promise<Void> startPromise)
+    {
+        Arrays.fill(upSince, System.currentTimeMillis());
+
+        vertx.eventBus().<JsonObject>localConsumer(Constants.EVENTBUS_PLUGIN_WORKER_ADDRESS, message ->
+        {
+            var worker = message.body().getInteger(Constants.WORKER);
+
+            if (message.body().getBoolean(Constants.ALIVE))
+            {
+                upSince[worker] = System.currentTimeMillis();
+            }
+            else
+            {
+                scheduleRestart(worker);
+            }
+        });
+
+        vertx.setPeriodic(Constants.PLUGIN_HEARTBEAT_INTERVAL, id -> heartbeat());
+
+        startPromise.complete();
+    }
+
+    // Asks the messenger for a heartbeat round and checks the acknowledgement times it reports.
+    private void heartbeat()
+    {
+        vertx.eventBus().<JsonObject>request(Constants.EVENTBUS_PLUGIN_HEARTBEAT_ADDRESS, new JsonObject())
+                .onSuccess(reply ->
+                {
+                    var now = System.currentTimeMillis();
+
+                    reply.body().getJsonArray(Constants.WORKERS).forEach(entry ->
+                    {
+                        var heartbeat = (JsonObject) entry;
+
+                        var worker = heartbeat.getInteger(Constants.WORKER);
+
+                        if (!heartbeat.getBoolean(Constants.ALIVE) || !pool.isAlive(worker))
+                        {
+                            return;
+                        }
+
+                        var silentFor = now - heartbeat.getLong(Constants.LAST_HEARTBEAT);
+
+                        if (silentFor > Constants.PLUGIN_HEARTBEAT_TIMEOUT)
+                        {
+                            logger.error("Plugin worker {} has not answered heartbeats for {} ms, killing it", worker, silentFor);
+
+                            pool.kill(worker);
+                        }
+                        else if (restarts[worker] > 0 && now - upSince[worker] > Constants.PLUGIN_HEARTBEAT_TIMEOUT)
+                        {
+                            logger.info("Plugin worker {} is stable again after {} restart(s)", worker, restarts[worker]);
+
+                            restarts[worker] = 0;
+                        }
+                    });
+                })
+                .onFailure(error -> logger.warn("Plugin heartbeat round failed: {}", error.getMessage()));
+    }
+
+    // Starts an exited worker again after the backoff delay, retrying with a longer delay if the start fails.
+    private void scheduleRestart(int worker)
+    {
+        var delay = Math.min(Constants.PLUGIN_MAX_RESTART_DELAY, Constants.PLUGIN_RESTART_DELAY << Math.min(restarts[worker], MAX_BACKOFF_SHIFT));
+
+        restarts[worker]++;
+
+        logger.warn("Restarting plugin worker {} in {} ms, restart {} in a row", worker, delay, restarts[worker]);
+
+        vertx.setTimer(delay, id ->
+        {
+            try
+            {
+                if (!pool.isAlive(worker))
+                {
+                    pool.launch(worker);
+                }
+            }
+            catch (IOException e)
+            {
+                logger.error("Failed to restart plugin worker {}: {}", worker, e.getMessage());
+
+                scheduleRestart(worker);
+            }
+        });
+    }
+}
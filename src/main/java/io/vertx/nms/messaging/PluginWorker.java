@@ -0,0 +1,142 @@
+package io.vertx.nms.messaging;
+
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.json.JsonObject;
+import io.vertx.nms.util.Constants;
+import io.vertx.nms.util.PendingTracker;
+import org.zeromq.ZMQ;
+
+// The messenger side of one plugin worker process: its request socket and the requests it has not answered yet.
+// Requests are keyed by job id for polling and by the negated request id for discovery, so both share one key space.
+public class PluginWorker
+{
+    private static final long TRACKER_TICK = 1_000;
+
+    private static final int EXPECTED_IN_FLIGHT = 1_024;
+
+    private static final String OUTSTANDING = "outstanding";
+
+    private static final String SENT = "sent";
+
+    private static final String REDISPATCHED = "redispatched";
+
+    private final int index;
+
+    private final ZMQ.Socket push;
+
+    private final PendingTracker<Message<JsonObject>> inFlight;
+
+    private boolean alive = true;
+
+    private long sent;
+
+    private long redispatched;
+
+    // Time of the last heartbeat acknowledgement, or of the worker coming up if none has arrived since.
+    private long lastHeartbeat = System.currentTimeMillis();
+
+    public PluginWorker(int index, ZMQ.Socket push)
+    {
+        this.index = index;
+
+        this.push = push;
+
+        this.inFlight = new PendingTracker<>(EXPECTED_IN_FLIGHT, TRACKER_TICK, System.currentTimeMillis());
+    }
+
+    public boolean send(byte[] frame)
+    {
+        return push.send(frame, ZMQ.DONTWAIT);
+    }
+
+    public void track(long key, Message<JsonObject> message, long now, long deadline)
+    {
+        inFlight.track(key, now, deadline, message);
+
+        sent++;
+    }
+
+    // @return The time the request was sent, or PendingTracker.MISSING if it was not outstanding on this worker.
+    public long complete(long key)
+    {
+        return inFlight.complete(key);
+    }
+
+    // Drops requests that were never answered, e.g. lost with a reply the plugin did not send.
+    public void expire(long now)
+    {
+        inFlight.expire(now, (key, sentAt, message) -> {});
+    }
+
+    // Removes every outstanding request and hands it to the handler, used when the worker process has died.
+    public void drain(PendingTracker.Handler<Message<JsonObject>> handler)
+    {
+        var keys = new long[inFlight.size()];
+
+        var count = new int[1];
+
+        inFlight.forEach((key, sentAt, message) -> keys[count[0]++] = key);
+
+        for (var key : keys)
+        {
+            var message = inFlight.ref(key);
+
+            var sentAt = inFlight.complete(key);
+
+            redispatched++;
+
+            handler.handle(key, sentAt, message);
+        }
+    }
+
+    public int outstanding()
+    {
+        return inFlight.size();
+    }
+
+    public boolean isAlive()
+    {
+        return alive;
+    }
+
+    public void setAlive(boolean alive)
+    {
+        this.alive = alive;
+
+        if (alive)
+        {
+            lastHeartbeat = System.currentTimeMillis();
+        }
+    }
+
+    public void heartbeatAcked(long now)
+    {
+        lastHeartbeat = now;
+    }
+
+    public long lastHeartbeat()
+    {
+        return lastHeartbeat;
+    }
+
+    public int index()
+    {
+        return index;
+    }
+
+    public void close()
+    {
+        push.close();
+    }
+
+    public JsonObject stats()
+    {
+        return new JsonObject()
+                .put(Constants.WORKER, index)
+                .put(Constants.ALIVE, alive)
+                .put(OUTSTANDING, inFlight.size())
+                .put(SENT, sent)
+                .put(REDISPATCHED, redispatched)
+                .put(Constants.LAST_HEARTBEAT, lastHeartbeat);
+    }
+}
@@ -0,0 +1,173 @@
+package io.vertx.nms.messaging;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.nms.util.Constants;
+import io.vertx.nms.util.Util;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+// Launches and supervises the plugin worker processes.
+// Every worker gets its own request and reply endpoints through the environment; worker 0 uses the default
+// endpoints, so a single worker behaves exactly like the plugin launched on its own.
+// When a worker exits it is reported on the event bus, so the messenger can re-dispatch its requests and the
+// PluginSupervisor can start it again with backoff. Exits before the pool is attached are restarted here after a
+// short delay.
+public class PluginWorkerPool
+{
+    private static final Logger logger = LoggerFactory.getLogger(PluginWorkerPool.class);
+
+    private static final String ENV_WORKER_ID = "NMS_WORKER_ID";
+
+    private static final String ENV_REQUEST_ADDRESS = "NMS_ZMQ_REQUEST_ADDRESS";
+
+    private static final String ENV_REPLY_ADDRESS = "NMS_ZMQ_REPLY_ADDRESS";
+
+    private final File executable;
+
+    private final Process[] processes;
+
+    private volatile Vertx vertx;
+
+    private volatile boolean stopping;
+
+    // @param executable The plugin executable.
+    // @param size The number of worker processes.
+    public PluginWorkerPool(File executable, int size)
+    {
+        this.executable = executable;
+
+        this.processes = new Process[size];
+    }
+
+    // Starts every worker process.
+    // @throws IOException if a process cannot be started.
+    public void start() throws IOException
+    {
+        for (var worker = 0; worker < processes.length; worker++)
+        {
+            launch(worker);
+        }
+
+        logger.info("Started {} plugin worker(s)", processes.length);
+    }
+
+    // Exits are reported on the event bus from here on and restarting is left to the supervisor; earlier ones only
+    // restart the worker.
+    public void attach(Vertx vertx)
+    {
+        this.vertx = vertx;
+    }
+
+    public int size()
+    {
+        return processes.length;
+    }
+
+    public void stop()
+    {
+        stopping = true;
+
+        for (var process : processes)
+        {
+            if (process != null && process.isAlive())
+            {
+                process.destroy();
+            }
+        }
+
+        logger.info("Plugin workers terminated.");
+    }
+
+    // @return true if the worker process is running.
+    public boolean isAlive(int worker)
+    {
+        var process = processes[worker];
+
+        return process != null && process.isAlive();
+    }
+
+    // Forcibly ends a worker process, e.g. one that stopped answering heartbeats. Its exit is reported as usual.
+    public void kill(int worker)
+    {
+        var process = processes[worker];
+
+        if (process != null && process.isAlive())
+        {
+            process.destroyForcibly();
+        }
+    }
+
+    // Starts one worker process on its own endpoints and reports it as up.
+    // @throws IOException if the process cannot be started.
+    public void launch(int worker) throws IOException
+    {
+        if (stopping)
+        {
+            return;
+        }
+
+        var processBuilder = new ProcessBuilder(executable.getAbsolutePath());
+
+        processBuilder.environment().put(ENV_WORKER_ID, String.valueOf(worker));
+
+        processBuilder.environment().put(ENV_REQUEST_ADDRESS, Util.workerAddress(Constants.ZMQ_PUSH_ADDRESS, worker));
+
+        processBuilder.environment().put(ENV_REPLY_ADDRESS, Util.workerAddress(Constants.ZMQ_PULL_ADDRESS, worker));
+
+        var process = processBuilder.start();
+
+        processes[worker] = process;
+
+        process.onExit().thenAccept(exited -> onExit(worker, exited));
+
+        publish(worker, true);
+    }
+
+    private void onExit(int worker, Process process)
+    {
+        if (stopping)
+        {
+            return;
+        }
+
+        if (vertx != null)
+        {
+            logger.error("Plugin worker {} exited with code {}", worker, process.exitValue());
+
+            publish(worker, false);
+
+            return;
+        }
+
+        logger.error("Plugin worker {} exited with code {}, restarting in {} ms", worker, process.exitValue(), Constants.PLUGIN_RESTART_DELAY);
+
+        CompletableFuture.delayedExecutor(Constants.PLUGIN_RESTART_DELAY, TimeUnit.MILLISECONDS).execute(() ->
+        {
+            try
+            {
+                if (!stopping)
+                {
+                    launch(worker);
+                }
+            }
+            catch (IOException e)
+            {
+                logger.error("Failed to restart plugin worker {}: {}", worker, e.getMessage());
+            }
+        });
+    }
+
+    private void publish(int worker, boolean alive)
+    {
+        if (vertx != null)
+        {
+            vertx.eventBus().publish(Constants.EVENTBUS_PLUGIN_WORKER_ADDRESS, new JsonObject().put(Constants.WORKER, worker).put(Constants.ALIVE, alive));
+        }
+    }
+}
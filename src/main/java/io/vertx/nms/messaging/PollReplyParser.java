@@ -0,0 +1,165 @@
+package io.vertx.nms.messaging;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import io.vertx.nms.polling.InterfaceTable;
+import io.vertx.nms.polling.MetricSet;
+import io.vertx.nms.polling.PollReply;
+import io.vertx.nms.util.Constants;
+
+import java.io.IOException;
+
+// Streams a polling reply from its frame straight into a PollReply, without building a JSON tree.
+// Scalars become String, Long, Double or Boolean values, the interfaces array becomes an InterfaceTable; other nested
+// values are rare and read as plain maps and lists. Frames that turn out not to be polling replies, i.e. discovery
+// replies and batch envelopes, are left to the tree decoder.
+public class PollReplyParser
+{
+    private final JsonFactory factory;
+
+    // @param factory The JSON or CBOR factory of the frames, with an object mapper as codec for nested values.
+    public PollReplyParser(JsonFactory factory)
+    {
+        this.factory = factory;
+    }
+
+    // @return The reply, or null if the frame is not a polling reply.
+    // @throws IOException if the frame is malformed.
+    public PollReply parse(byte[] frame) throws IOException
+    {
+        try (var parser = factory.createParser(frame))
+        {
+            if (parser.nextToken() != JsonToken.START_OBJECT)
+            {
+                return null;
+            }
+
+            String requestType = null;
+
+            String jobId = null;
+
+            String requestId = null;
+
+            var metrics = new MetricSet();
+
+            InterfaceTable interfaces = null;
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME)
+            {
+                var field = parser.currentName();
+
+                var token = parser.nextToken();
+
+                switch (field)
+                {
+                    case Constants.REQUEST_TYPE ->
+                    {
+                        requestType = parser.getValueAsString();
+
+                        if (!Constants.POLLING.equalsIgnoreCase(requestType))
+                        {
+                            return null;
+                        }
+                    }
+                    case Constants.DATABASE_JOB_ID -> jobId = parser.getValueAsString();
+
+                    case Constants.REQUEST_ID -> requestId = parser.getValueAsString();
+
+                    case Constants.DATA ->
+                    {
+                        if (token == JsonToken.START_OBJECT)
+                        {
+                            interfaces = parseData(parser, metrics);
+                        }
+                        else
+                        {
+                            parser.skipChildren();
+                        }
+                    }
+                    default -> parser.skipChildren();
+                }
+            }
+
+            if (requestType == null || jobId == null)
+            {
+                return null;
+            }
+
+            return new PollReply(Long.parseLong(jobId), requestId, metrics, interfaces, 0, 0);
+        }
+    }
+
+    // Reads the data object into the metric set.
+    // @return The interfaces table, or null if the data has none.
+    private static InterfaceTable parseData(JsonParser parser, MetricSet metrics) throws IOException
+    {
+        InterfaceTable interfaces = null;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME)
+        {
+            var key = parser.currentName();
+
+            var token = parser.nextToken();
+
+            if (token == JsonToken.START_ARRAY && key.equals(Constants.METRIC_GROUP_INTERFACES))
+            {
+                interfaces = parseInterfaces(parser);
+            }
+            else
+            {
+                metrics.put(key, value(parser, token));
+            }
+        }
+
+        return interfaces;
+    }
+
+    private static InterfaceTable parseInterfaces(JsonParser parser) throws IOException
+    {
+        var table = new InterfaceTable();
+
+        JsonToken token;
+
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY)
+        {
+            table.startRow();
+
+            if (token != JsonToken.START_OBJECT)
+            {
+                parser.skipChildren();
+
+                continue;
+            }
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME)
+            {
+                var column = parser.currentName();
+
+                table.put(column, value(parser, parser.nextToken()));
+            }
+        }
+
+        return table;
+    }
+
+    private static Object value(JsonParser parser, JsonToken token) throws IOException
+    {
+        return switch (token)
+        {
+            case VALUE_STRING -> parser.getText();
+
+            case VALUE_NUMBER_INT -> parser.getNumberType() == JsonParser.NumberType.BIG_INTEGER ? parser.getBigIntegerValue() : parser.getLongValue();
+
+            case VALUE_NUMBER_FLOAT -> parser.getDoubleValue();
+
+            case VALUE_TRUE -> Boolean.TRUE;
+
+            case VALUE_FALSE -> Boolean.FALSE;
+
+            case VALUE_NULL -> null;
+
+            default -> parser.readValueAs(Object.class);
+        };
+    }
+}
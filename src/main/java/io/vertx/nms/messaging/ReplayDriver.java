@@ -0,0 +1,296 @@
+package io.vertx.nms.messaging;
+
+import io.vertx.core.AbstractVerticle;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.json.JsonObject;
+import io.vertx.nms.polling.PollReply;
+import io.vertx.nms.util.Constants;
+import io.vertx.nms.util.LocalCodec;
+import io.vertx.nms.util.Util;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+// Feeds the polling replies of a FrameRecorder recording into the processors, as the messenger would have handed them
+// over, for repeatable ingestion and database write benchmarks built from real payloads.
+// Replies are sent at the pace they were recorded, divided by the speed in the config; speed 0 replays as fast as the
+// pipeline takes them. The time between recorder runs is left out. Request frames and discovery replies are skipped.
+// Processors only accept a reply for a job they are not polling themselves, so the scheduler should not run alongside.
+public class ReplayDriver extends AbstractVerticle
+{
+    private static final Logger logger = LoggerFactory.getLogger(ReplayDriver.class);
+
+    // Config key of the recording path.
+    public static final String FILE = "file";
+
+    // Config key of the replay speed: 1 as recorded, N for N times faster, 0 for as fast as possible.
+    public static final String SPEED = "speed";
+
+    private static final int CHUNK_FRAMES = 256;
+
+    private static final String BATCH = "batch";
+
+    private static final String RESULTS = "results";
+
+    private static final String FRAMES = "frames";
+
+    private static final String REPLIES = "replies";
+
+    private static final String SKIPPED = "skipped";
+
+    private static final String ELAPSED_MS = "elapsed_ms";
+
+    private static final String REPLIES_PER_SECOND = "replies_per_second";
+
+    private final WireCodec codec = new WireCodec();
+
+    private final Promise<JsonObject> done = Promise.promise();
+
+    private FrameRecorder.Reader reader;
+
+    private double speed;
+
+    private List<FrameRecorder.Frame> chunk = List.of();
+
+    private int next;
+
+    // Recording time of the first reply of the current run and the time it was replayed, the origin of the replay
+    // schedule, reset at every run start.
+    private long originTimestamp = -1;
+
+    private long originNanos;
+
+    // Time the first reply was replayed.
+    private long startNanos = -1;
+
+    private long frames;
+
+    private long replies;
+
+    private long skipped;
+
+    // Opens the recording and starts feeding it.
+    @Override
+    public void start(Promise<Void> startPromise)
+    {
+        LocalCodec.register(vertx, PollReply.class);
+
+        speed = config().getDouble(SPEED, 1.0);
+
+        var file = Path.of(config().getString(FILE));
+
+        vertx.executeBlocking(() -> new FrameRecorder.Reader(file)).onComplete(result ->
+        {
+            if (result.succeeded())
+            {
+                reader = result.result();
+
+                logger.info("Replaying {} at speed {}", file.toAbsolutePath(), speed);
+
+                startPromise.complete();
+
+                readChunk();
+            }
+            else
+            {
+                startPromise.fail(result.cause());
+            }
+        });
+    }
+
+    // @return Completes with the number of frames read, replies fed, frames skipped and the replay rate once the
+    //         whole recording has been fed.
+    public Future<JsonObject> completion()
+    {
+        return done.future();
+    }
+
+    // Reads the next reply and run start frames off the event loop.
+    private void readChunk()
+    {
+        vertx.executeBlocking(() ->
+        {
+            var replyFrames = new ArrayList<FrameRecorder.Frame>(CHUNK_FRAMES);
+
+            FrameRecorder.Frame frame;
+
+            while (replyFrames.size() < CHUNK_FRAMES && (frame = reader.next()) != null)
+            {
+                if (frame.direction() != FrameRecorder.REQUEST)
+                {
+                    replyFrames.add(frame);
+                }
+            }
+
+            return replyFrames;
+        }).onComplete(result ->
+        {
+            if (result.failed())
+            {
+                logger.error("Failed to read recording, replay stopped: {}", result.cause().getMessage());
+
+                finish();
+            }
+            else if (result.result().isEmpty())
+            {
+                finish();
+            }
+            else
+            {
+                chunk = result.result();
+
+                next = 0;
+
+                feed();
+            }
+        });
+    }
+
+    // Feeds every frame of the chunk that is due, then waits for the next one or reads the next chunk.
+    private void feed()
+    {
+        while (next < chunk.size())
+        {
+            var frame = chunk.get(next);
+
+            if (frame.direction() == FrameRecorder.RUN_START)
+            {
+                originTimestamp = -1;
+
+                next++;
+
+                continue;
+            }
+
+            if (originTimestamp < 0)
+            {
+                originTimestamp = frame.timestamp();
+
+                originNanos = System.nanoTime();
+
+                if (startNanos < 0)
+                {
+                    startNanos = originNanos;
+                }
+            }
+
+            if (speed > 0)
+            {
+                var wait = (long) ((frame.timestamp() - originTimestamp) / speed) - (System.nanoTime() - originNanos) / 1_000;
+
+                if (wait >= 1_000)
+                {
+                    vertx.setTimer(wait / 1_000, id -> feed());
+
+                    return;
+                }
+            }
+
+            next++;
+
+            replay(frame.bytes());
+        }
+
+        readChunk();
+    }
+
+    // Decodes a reply frame as the messenger does and hands its polling replies to the processor shards owning the jobs.
+    private void replay(byte[] frame)
+    {
+        frames++;
+
+        try
+        {
+            var reply = codec.decodePollReply(frame);
+
+            if (reply != null)
+            {
+                send(reply);
+
+                return;
+            }
+
+            var decoded = codec.decode(frame);
+
+            if (BATCH.equalsIgnoreCase(decoded.getString(Constants.REQUEST_TYPE)))
+            {
+                for (var result : decoded.getJsonArray(RESULTS))
+                {
+                    if (Constants.POLLING.equalsIgnoreCase(((JsonObject) result).getString(Constants.REQUEST_TYPE)))
+                    {
+                        send(PollReply.fromJson((JsonObject) result));
+                    }
+                    else
+                    {
+                        skipped++;
+                    }
+                }
+            }
+            else
+            {
+                skipped++;
+            }
+        }
+        catch (Exception e)
+        {
+            skipped++;
+
+            logger.warn("Skipping recorded frame of {} bytes: {}", frame.length, e.getMessage());
+        }
+    }
+
+    private void send(PollReply reply)
+    {
+        replies++;
+
+        vertx.eventBus().send(Util.shardAddress(Constants.EVENTBUS_POLLING_REPLY_ADDRESS, Util.shardOf(reply.jobId())), reply.stamped(0, System.currentTimeMillis()));
+    }
+
+    private void finish()
+    {
+        closeReader();
+
+        var elapsed = startNanos < 0 ? 0 : (System.nanoTime() - startNanos) / 1_000_000;
+
+        var summary = new JsonObject()
+                .put(FRAMES, frames)
+                .put(REPLIES, replies)
+                .put(SKIPPED, skipped)
+                .put(ELAPSED_MS, elapsed)
+                .put(REPLIES_PER_SECOND, replies * 1000 / Math.max(1, elapsed));
+
+        logger.info("Replay finished: {}", summary.encode());
+
+        done.tryComplete(summary);
+    }
+
+    private void closeReader()
+    {
+        if (reader == null)
+        {
+            return;
+        }
+
+        try
+        {
+            reader.close();
+        }
+        catch (IOException e)
+        {
+            logger.warn("Failed to close recording: {}", e.getMessage());
+        }
+
+        reader = null;
+    }
+
+    @Override
+    public void stop()
+    {
+        closeReader();
+    }
+}
@@ -0,0 +1,250 @@
+package io.vertx.nms.messaging;
+
+import io.vertx.core.json.JsonObject;
+import io.vertx.nms.polling.MetricGroups;
+import io.vertx.nms.util.Constants;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+// Pre-encoded polling requests, one template per job.
+// A template keeps the full request of a job and its encoded frame for every metric group selection sent so far.
+// The request id and timestamp are encoded as fixed width digit strings, so sending a request copies the frame and
+// patches both fields in place instead of building and encoding the request again. Placeholders of the same width
+// mark the fields, which works for JSON and CBOR alike since both write strings as plain UTF-8.
+// A template belongs to one version of the device as stamped by the device registry; a full request carrying a newer
+// version replaces it, and its frames are encoded again when the wire encoding changes.
+public class RequestTemplates
+{
+    // Digits of Long.MAX_VALUE.
+    private static final int FIELD_WIDTH = 19;
+
+    private static final String REQUEST_ID_PLACEHOLDER = "~".repeat(FIELD_WIDTH);
+
+    private static final String TIMESTAMP_PLACEHOLDER = "^".repeat(FIELD_WIDTH);
+
+    private static final byte[] REQUEST_ID_MARK = REQUEST_ID_PLACEHOLDER.getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] TIMESTAMP_MARK = TIMESTAMP_PLACEHOLDER.getBytes(StandardCharsets.US_ASCII);
+
+    private static final String TEMPLATES = "templates";
+
+    private static final String HITS = "hits";
+
+    private static final String BUILDS = "builds";
+
+    private static final String INVALIDATIONS = "invalidations";
+
+    private static final class Template
+    {
+        private final long version;
+
+        private final JsonObject body;
+
+        private String encoding;
+
+        private final byte[][] frames = new byte[MetricGroups.ALL + 1][];
+
+        private final int[] requestIdOffsets = new int[MetricGroups.ALL + 1];
+
+        private final int[] timestampOffsets = new int[MetricGroups.ALL + 1];
+
+        private Template(long version, JsonObject body)
+        {
+            this.version = version;
+
+            this.body = body;
+        }
+    }
+
+    private final WireCodec codec;
+
+    private final Map<Long, Template> templates = new HashMap<>();
+
+    private long hits;
+
+    private long builds;
+
+    private long invalidations;
+
+    public RequestTemplates(WireCodec codec)
+    {
+        this.codec = codec;
+    }
+
+    // Keeps a full polling request as the template of its job unless the job already has one of that version.
+    // @param jobId The job of the request.
+    // @param version The device version the request was built from.
+    // @param request The full request; the per-request fields are dropped from the stored copy.
+    public void put(long jobId, long version, JsonObject request)
+    {
+        var template = templates.get(jobId);
+
+        if (template != null && template.version == version)
+        {
+            return;
+        }
+
+        var body = request.copy();
+
+        body.remove(Constants.REQUEST_ID);
+
+        body.remove(Constants.REQUEST_TIMESTAMP);
+
+        body.remove(Constants.METRIC_GROUPS);
+
+        body.remove(Constants.TEMPLATE_VERSION);
+
+        templates.put(jobId, new Template(version, body));
+
+        if (template != null)
+        {
+            invalidations++;
+        }
+    }
+
+    public boolean contains(long jobId, long version)
+    {
+        var template = templates.get(jobId);
+
+        return template != null && template.version == version;
+    }
+
+    public void remove(long jobId)
+    {
+        if (templates.remove(jobId) != null)
+        {
+            invalidations++;
+        }
+    }
+
+    // @param jobId The job of the request.
+    // @param version The device version the request was built from.
+    // @param groups The requested metric groups as MetricGroups bit flags.
+    // @param requestId The sequence id of the request.
+    // @param timestamp The send time in milliseconds.
+    // @return The encoded request, or null if the job has no template of that version.
+    public byte[] encode(long jobId, long version, int groups, long requestId, long timestamp)
+    {
+        var template = templates.get(jobId);
+
+        if (template == null || template.version != version)
+        {
+            return null;
+        }
+
+        var encoding = codec.encoding();
+
+        if (!encoding.equals(template.encoding))
+        {
+            Arrays.fill(template.frames, null);
+
+            template.encoding = encoding;
+        }
+
+        if (template.frames[groups] == null && !build(template, groups))
+        {
+            return codec.encode(body(template, groups, requestId, timestamp));
+        }
+
+        var frame = Arrays.copyOf(template.frames[groups], template.frames[groups].length);
+
+        patch(frame, template.requestIdOffsets[groups], requestId);
+
+        patch(frame, template.timestampOffsets[groups], timestamp);
+
+        codec.countEncoded(encoding, frame.length);
+
+        hits++;
+
+        return frame;
+    }
+
+    // @return The full request as JSON, used where requests are embedded rather than sent as frames of their own,
+    //         or null if the job has no template of that version.
+    public JsonObject body(long jobId, long version, int groups, long requestId, long timestamp)
+    {
+        var template = templates.get(jobId);
+
+        return template == null || template.version != version ? null : body(template, groups, requestId, timestamp);
+    }
+
+    public JsonObject stats()
+    {
+        return new JsonObject()
+                .put(TEMPLATES, templates.size())
+                .put(HITS, hits)
+                .put(BUILDS, builds)
+                .put(INVALIDATIONS, invalidations);
+    }
+
+    private static JsonObject body(Template template, int groups, long requestId, long timestamp)
+    {
+        return template.body.copy()
+                .put(Constants.REQUEST_ID, pad(requestId))
+                .put(Constants.REQUEST_TIMESTAMP, pad(timestamp))
+                .put(Constants.METRIC_GROUPS, MetricGroups.names(groups));
+    }
+
+    // Encodes the template with placeholders and locates them.
+    // @return false if a placeholder is not found exactly once, e.g. because a credential happens to contain it.
+    private boolean build(Template template, int groups)
+    {
+        var frame = codec.encodeTemplate(template.body.copy()
+                .put(Constants.REQUEST_ID, REQUEST_ID_PLACEHOLDER)
+                .put(Constants.REQUEST_TIMESTAMP, TIMESTAMP_PLACEHOLDER)
+                .put(Constants.METRIC_GROUPS, MetricGroups.names(groups)), template.encoding);
+
+        var requestIdOffset = indexOf(frame, REQUEST_ID_MARK, 0);
+
+        var timestampOffset = indexOf(frame, TIMESTAMP_MARK, 0);
+
+        if (requestIdOffset < 0 || timestampOffset < 0 || indexOf(frame, REQUEST_ID_MARK, requestIdOffset + 1) >= 0 || indexOf(frame, TIMESTAMP_MARK, timestampOffset + 1) >= 0)
+        {
+            return false;
+        }
+
+        template.frames[groups] = frame;
+
+        template.requestIdOffsets[groups] = requestIdOffset;
+
+        template.timestampOffsets[groups] = timestampOffset;
+
+        builds++;
+
+        return true;
+    }
+
+    private static int indexOf(byte[] frame, byte[] mark, int from)
+    {
+        for (var i = from; i <= frame.length - mark.length; i++)
+        {
+            if (Arrays.equals(frame, i, i + mark.length, mark, 0, mark.length))
+            {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    // Writes the value as zero padded decimal digits over the placeholder.
+    private static void patch(byte[] frame, int offset, long value)
+    {
+        for (var i = offset + FIELD_WIDTH - 1; i >= offset; i--)
+        {
+            frame[i] = (byte) ('0' + value % 10);
+
+            value /= 10;
+        }
+    }
+
+    private static String pad(long value)
+    {
+        var digits = Long.toString(value);
+
+        return "0".repeat(FIELD_WIDTH - digits.length()) + digits;
+    }
+}
@@ -0,0 +1,201 @@
+package io.vertx.nms.messaging;
+
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.nms.util.LatencyHistogram;
+
+import java.util.function.UnaryOperator;
+
+// Bounded FIFO of requests waiting to be written to the plugin socket, with the time each one waited in the queue.
+// The requests sit in a ring buffer of parallel arrays, so queueing a request does not allocate. New requests are
+// rejected once the lane holds capacity requests; requests that were already accepted and are put back in front,
+// e.g. those of a worker that died, are always taken and grow the ring if needed.
+public class SendLane
+{
+    private static final String QUEUED = "queued";
+
+    private static final String SENT = "sent";
+
+    private static final String WAIT_P50 = "wait_p50";
+
+    private static final String WAIT_P99 = "wait_p99";
+
+    private static final String OLDEST_QUEUED = "oldest_queued_ms";
+
+    private static final String CAPACITY = "capacity";
+
+    private static final String HIGH_WATER = "high_water";
+
+    private static final String REJECTED = "rejected";
+
+    private static final String SATURATION = "saturation";
+
+    private final int capacity;
+
+    private Message<JsonObject>[] messages;
+
+    private long[] queuedAts;
+
+    private int head;
+
+    private int size;
+
+    private final LatencyHistogram wait = new LatencyHistogram();
+
+    private long sent;
+
+    private long rejected;
+
+    private int highWater;
+
+    // @param capacity The number of queued requests above which new requests are rejected.
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public SendLane(int capacity)
+    {
+        this.capacity = Math.max(1, capacity);
+
+        this.messages = new Message[this.capacity];
+
+        this.queuedAts = new long[this.capacity];
+    }
+
+    // Appends a request unless the lane is full.
+    // @return false if the request was rejected.
+    public boolean offer(Message<JsonObject> message, long now)
+    {
+        if (size >= capacity)
+        {
+            rejected++;
+
+            return false;
+        }
+
+        if (size == messages.length)
+        {
+            grow();
+        }
+
+        var tail = (head + size) % messages.length;
+
+        messages[tail] = message;
+
+        queuedAts[tail] = now;
+
+        size++;
+
+        highWater = Math.max(highWater, size);
+
+        return true;
+    }
+
+    // Puts a request back in front of the lane, e.g. one that has to be sent again. Never rejects.
+    public void addFirst(Message<JsonObject> message, long now)
+    {
+        if (size == messages.length)
+        {
+            grow();
+        }
+
+        head = (head - 1 + messages.length) % messages.length;
+
+        messages[head] = message;
+
+        queuedAts[head] = now;
+
+        size++;
+
+        highWater = Math.max(highWater, size);
+    }
+
+    public Message<JsonObject> peek()
+    {
+        return messages[head];
+    }
+
+    // Adds the bodies of the first count requests to the array, without removing them, stopping before the first
+    // request that cannot be expanded.
+    // @param expand Turns a queued body into the request to add, e.g. a request sent by template into its full form,
+    //               or returns null if the request cannot be sent.
+    public JsonArray peekBodies(int count, JsonArray bodies, UnaryOperator<JsonObject> expand)
+    {
+        for (var i = 0; i < count && i < size; i++)
+        {
+            var body = expand.apply(messages[(head + i) % messages.length].body());
+
+            if (body == null)
+            {
+                break;
+            }
+
+            bodies.add(body);
+        }
+
+        return bodies;
+    }
+
+    public long oldestQueuedAt()
+    {
+        return queuedAts[head];
+    }
+
+    // Removes the head request once it has been written and records how long it waited.
+    public void sent(long now)
+    {
+        wait.record(now - queuedAts[head]);
+
+        messages[head] = null;
+
+        head = (head + 1) % messages.length;
+
+        size--;
+
+        sent++;
+    }
+
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public JsonObject stats(long now)
+    {
+        return new JsonObject()
+                .put(QUEUED, size)
+                .put(CAPACITY, capacity)
+                .put(SATURATION, (double) size / capacity)
+                .put(HIGH_WATER, highWater)
+                .put(REJECTED, rejected)
+                .put(SENT, sent)
+                .put(WAIT_P50, wait.percentile(50))
+                .put(WAIT_P99, wait.percentile(99))
+                .put(OLDEST_QUEUED, size == 0 ? 0 : now - queuedAts[head]);
+    }
+
+    // Doubles the ring, unrolling it so the head is at index 0.
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private void grow()
+    {
+        var grown = new Message[messages.length * 2];
+
+        var grownQueuedAts = new long[messages.length * 2];
+
+        for (var i = 0; i < size; i++)
+        {
+            grown[i] = messages[(head + i) % messages.length];
+
+            grownQueuedAts[i] = queuedAts[(head + i) % messages.length];
+        }
+
+        messages = grown;
+
+        queuedAts = grownQueuedAts;
+
+        head = 0;
+    }
+}
@@ -0,0 +1,250 @@
+package io.vertx.nms.messaging;
+
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.json.jackson.VertxModule;
+import io.vertx.nms.polling.PollReply;
+import io.vertx.nms.util.Constants;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// Encodes requests to and decodes replies from the plugin sockets as JSON or CBOR.
+// Incoming frames are recognised by their first byte: JSON text starts with '{' or '[' (after optional whitespace),
+// anything else is read as CBOR, so both encodings are always accepted.
+// Outgoing frames use the configured codec. In auto mode requests stay JSON until the plugin has sent a CBOR frame,
+// which is taken as the plugin announcing that it speaks CBOR.
+// Frames are handled as bytes end to end, so JSON is parsed straight from the frame without an intermediate String.
+// Polling replies are streamed into typed PollReply records, other frames are decoded into JSON trees.
+// Decoding runs on the receiver thread while the stats are read on the event loop, hence the adders.
+public class WireCodec
+{
+    public static final String JSON = "json";
+
+    public static final String CBOR = "cbor";
+
+    public static final String AUTO = "auto";
+
+    private static final String ENCODING = "encoding";
+
+    private static final String FRAMES_OUT = "frames_out";
+
+    private static final String BYTES_OUT = "bytes_out";
+
+    private static final String FRAMES_IN = "frames_in";
+
+    private static final String BYTES_IN = "bytes_in";
+
+    private static final String DECODE_US_PER_1K = "decode_us_per_1k";
+
+    private static final class Stats
+    {
+        private final LongAdder framesOut = new LongAdder();
+
+        private final LongAdder bytesOut = new LongAdder();
+
+        private final LongAdder framesIn = new LongAdder();
+
+        private final LongAdder bytesIn = new LongAdder();
+
+        private final LongAdder decodeNanos = new LongAdder();
+
+        private JsonObject toJson()
+        {
+            var frames = framesIn.sum();
+
+            return new JsonObject()
+                    .put(FRAMES_OUT, framesOut.sum())
+                    .put(BYTES_OUT, bytesOut.sum())
+                    .put(FRAMES_IN, frames)
+                    .put(BYTES_IN, bytesIn.sum())
+                    .put(DECODE_US_PER_1K, frames == 0 ? 0 : decodeNanos.sum() / frames);
+        }
+    }
+
+    // The Vert.x module writes nested JsonObject and JsonArray values as plain maps and arrays.
+    private final CBORMapper cborMapper = (CBORMapper) new CBORMapper().registerModule(new VertxModule());
+
+    private final PollReplyParser jsonReplies = new PollReplyParser(new JsonMapper().getFactory());
+
+    private final PollReplyParser cborReplies = new PollReplyParser(cborMapper.getFactory());
+
+    private final String mode;
+
+    private volatile boolean peerSpeaksCbor;
+
+    private final Stats jsonStats = new Stats();
+
+    private final Stats cborStats = new Stats();
+
+    public WireCodec()
+    {
+        this(Constants.ZMQ_CODEC);
+    }
+
+    // @param mode json, cbor or auto.
+    public WireCodec(String mode)
+    {
+        this.mode = mode;
+    }
+
+    // @return The encoding requests are currently written in, json or cbor.
+    public String encoding()
+    {
+        return CBOR.equals(mode) || (AUTO.equals(mode) && peerSpeaksCbor) ? CBOR : JSON;
+    }
+
+    // Encodes a request template in the given encoding without counting it as a frame, the frames written from the
+    // template are counted with countEncoded.
+    public byte[] encodeTemplate(JsonObject message, String encoding)
+    {
+        try
+        {
+            return CBOR.equals(encoding) ? cborMapper.writeValueAsBytes(message) : message.toBuffer().getBytes();
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Counts a frame written from a pre-encoded template instead of through encode.
+    public void countEncoded(String encoding, int length)
+    {
+        var stats = CBOR.equals(encoding) ? cborStats : jsonStats;
+
+        stats.framesOut.increment();
+
+        stats.bytesOut.add(length);
+    }
+
+    public byte[] encode(JsonObject message)
+    {
+        var cbor = CBOR.equals(mode) || (AUTO.equals(mode) && peerSpeaksCbor);
+
+        try
+        {
+            var bytes = cbor ? cborMapper.writeValueAsBytes(message) : message.toBuffer().getBytes();
+
+            var stats = cbor ? cborStats : jsonStats;
+
+            stats.framesOut.increment();
+
+            stats.bytesOut.add(bytes.length);
+
+            return bytes;
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // @return The decoded frame.
+    // @throws RuntimeException if the frame is neither valid JSON nor valid CBOR.
+    @SuppressWarnings("unchecked")
+    public JsonObject decode(byte[] frame)
+    {
+        var startTime = System.nanoTime();
+
+        var cbor = !isJson(frame);
+
+        JsonObject message;
+
+        try
+        {
+            message = cbor ? new JsonObject(cborMapper.readValue(frame, Map.class)) : new JsonObject(Buffer.buffer(frame));
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+
+        var stats = cbor ? cborStats : jsonStats;
+
+        stats.decodeNanos.add(System.nanoTime() - startTime);
+
+        stats.framesIn.increment();
+
+        stats.bytesIn.add(frame.length);
+
+        if (cbor)
+        {
+            peerSpeaksCbor = true;
+        }
+
+        return message;
+    }
+
+    // Streams a polling reply into typed fields.
+    // @return The reply, or null if the frame is not a polling reply and has to be decoded with decode instead.
+    // @throws RuntimeException if the frame is neither valid JSON nor valid CBOR.
+    public PollReply decodePollReply(byte[] frame)
+    {
+        var startTime = System.nanoTime();
+
+        var cbor = !isJson(frame);
+
+        PollReply reply;
+
+        try
+        {
+            reply = (cbor ? cborReplies : jsonReplies).parse(frame);
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+
+        if (reply == null)
+        {
+            return null;
+        }
+
+        var stats = cbor ? cborStats : jsonStats;
+
+        stats.decodeNanos.add(System.nanoTime() - startTime);
+
+        stats.framesIn.increment();
+
+        stats.bytesIn.add(frame.length);
+
+        if (cbor)
+        {
+            peerSpeaksCbor = true;
+        }
+
+        return reply;
+    }
+
+    // @return The encoding used for requests and the traffic per encoding.
+    public JsonObject stats()
+    {
+        return new JsonObject()
+                .put(ENCODING, encoding())
+                .put(JSON, jsonStats.toJson())
+                .put(CBOR, cborStats.toJson());
+    }
+
+    private static boolean isJson(byte[] frame)
+    {
+        for (var value : frame)
+        {
+            if (value == '{' || value == '[')
+            {
+                return true;
+            }
+
+            if (value != ' ' && value != '\t' && value != '\r' && value != '\n')
+            {
+                return false;
+            }
+        }
+
+        return false;
+    }
+}
@@ -1,58 +1,158 @@
 package io.vertx.nms.messaging;
 
 import io.vertx.core.AbstractVerticle;
+import io.vertx.core.Context;
 import io.vertx.core.Promise;
 import io.vertx.core.eventbus.Message;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
+import io.vertx.nms.polling.PollReply;
 import io.vertx.nms.util.Constants;
+import io.vertx.nms.util.LatencyHistogram;
+import io.vertx.nms.util.LocalCodec;
+import io.vertx.nms.util.PendingTracker;
+import io.vertx.nms.util.Util;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.zeromq.SocketType;
 import org.zeromq.ZMQ;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.UUID;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 public class ZmqMessenger extends AbstractVerticle
 {
     private static final Logger logger = LoggerFactory.getLogger(ZmqMessenger.class);
 
+    private static final int RESPONSE_CHECK_INTERVAL_MS = 500;
+
+    private static final long REQUEST_TIMEOUT_MS = 260_000;
+
+    private static final long REQUEST_TIMEOUT_CHECK_INTERVAL = 1_000;
+
+    private static final int EXPECTED_PENDING_REQUESTS = 1_024;
+
+    private static final String REQUEST_TIMED_OUT ="Request timed out";
+
+    private static final long SEND_RETRY_INTERVAL_MS = 50;
+
+    private static final String INTERACTIVE = "interactive";
+
+    private static final String BULK = "bulk";
+
+    private static final String SEND_FAILURES = "send_failures";
+
+    private static final String RETRIED = "retried";
+
+    private static final String PENDING_DISCOVERY = "pending_discovery";
+
+    private static final long RECEIVER_TIMEOUT_MS = 200;
+
+    private static final int RECEIVE_BATCH_SIZE = 256;
+
+    private static final String RECEIVER_THREAD_NAME = "zmq-receiver";
+
+    private static final String RECEIVE_MODE = "receive_mode";
+
+    private static final String RECEIVED = "received";
+
+    private static final String HANDOFF_P50_US = "handoff_p50_us";
+
+    private static final String HANDOFF_P99_US = "handoff_p99_us";
+
+    private static final String LOOP_RUN_P99_US = "loop_run_p99_us";
+
+    private static final String LOOP_BUSY_MS = "loop_busy_ms";
+
+    private static final String BATCH = "batch";
+
+    private static final String REQUESTS = "requests";
+
+    private static final String RESULTS = "results";
+
+    private static final String BATCH_SIZE = "batch_size";
+
+    private static final String ENVELOPES_SENT = "envelopes_sent";
+
+    private static final String BATCHED_REQUESTS = "batched_requests";
+
+    private static final String TEMPLATES = "templates";
+
+    private static final String WIRE = "wire";
+
+    private static final String FAILED_FAST = "failed_fast";
+
+    private static final String RECORDER = "recorder";
+
+    private static final byte[] HEARTBEAT = Constants.PLUGIN_HEALTH_CHECK.getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] HEARTBEAT_ACK = Constants.PLUGIN_HEALTH_OK.getBytes(StandardCharsets.UTF_8);
+
     private ZMQ.Context context;
 
-    private ZMQ.Socket push;
+    private final List<PluginWorker> workers = new ArrayList<>();
 
-    private ZMQ.Socket pull;
+    // One PULL socket per worker, so heartbeat acknowledgements can be attributed to the worker that sent them.
+    private final List<ZMQ.Socket> pulls = new ArrayList<>();
 
-    private static final int RESPONSE_CHECK_INTERVAL_MS = 500;
+    private PendingTracker<Message<JsonObject>> pendingRequests;
 
-    private static final long REQUEST_TIMEOUT_MS = 260_000;
+    private long nextRequestId = 1;
 
-    private static final long REQUEST_TIMEOUT_CHECK_INTERVAL = 20000;
+    private final SendLane interactiveLane = new SendLane(Constants.ZMQ_QUEUE_CAPACITY);
 
-    private final Map<String, PendingRequest> pendingRequests = new HashMap<>();
+    private final SendLane bulkLane = new SendLane(Constants.ZMQ_QUEUE_CAPACITY);
 
-    private static final String REQUEST_ID = "requestId";
+    private boolean retryScheduled = false;
 
-    private static final String REQUEST_TIMED_OUT ="Request timed out";
+    private long sendFailures;
 
-    private static class PendingRequest
-    {
-        Message<JsonObject> message;
+    private long retried;
 
-        long timestamp;
+    private boolean lingerScheduled = false;
 
-        PendingRequest(Message<JsonObject> message, long timestamp)
-        {
-            this.message = message;
+    private long envelopesSent;
 
-            this.timestamp = timestamp;
-        }
-    }
+    private long batchedRequests;
+
+    private final JsonObject envelope = new JsonObject();
+
+    private final WireCodec codec = new WireCodec();
+
+    private final RequestTemplates templates = new RequestTemplates(codec);
+
+    // Records the frames exchanged with the plugin when ZMQ_RECORD_FILE is set, otherwise null.
+    private FrameRecorder recorder;
+
+    private long failedFast;
+
+    private Context verticleContext;
+
+    private Thread receiver;
 
-    // Sets up a ZMQ DEALER socket for communication.
-    // Registers the socket with a poller for incoming messages.
-    // Listens for event bus messages on Constants.EVENTBUS_ZMQ_ADDRESS.
-    // Starts periodic checks for responses and timeouts.
+    private volatile boolean receiving;
+
+    private long received;
+
+    private long loopBusyNanos;
+
+    // Time the replies being handled were read off their socket, stamped on polling replies.
+    private long repliesReceivedAt;
+
+    // Time from a frame being read off the socket to its handling on the event loop.
+    private final LatencyHistogram handoffLatency = new LatencyHistogram();
+
+    // Event loop time per receive run: one timer tick in timer mode, one handed over burst in thread mode.
+    private final LatencyHistogram loopRuns = new LatencyHistogram();
+
+    // Binds one PUSH and one PULL socket per plugin worker on its request and reply endpoints.
+    // Listens for event bus messages on Constants.EVENTBUS_ZMQ_ADDRESS, for worker exits and restarts, and for
+    // heartbeat rounds of the supervisor.
+    // Receives replies on a dedicated thread, or with a periodic check of the socket in timer mode, and starts the timeout checks.
+    // Records the frames exchanged with the plugin to ZMQ_RECORD_FILE if it is set.
     @Override
     public void start(Promise<Void> startPromise)
     {
@@ -62,11 +162,26 @@ public class ZmqMessenger extends AbstractVerticle
         {
             context = ZMQ.context(1);
 
-            push = context.socket(SocketType.PUSH);
+            var success = true;
 
-            pull = context.socket(SocketType.PULL);
+            for (var worker = 0; worker < Constants.PLUGIN_WORKERS && success; worker++)
+            {
+                var push = context.socket(SocketType.PUSH);
 
-            boolean success = push.bind(Constants.ZMQ_PUSH_ADDRESS) && pull.bind(Constants.ZMQ_PULL_ADDRESS);
+                // Keeps the socket queue short so the backlog waits in the lanes, where discovery can overtake polling.
+                push.setSndHWM(Constants.ZMQ_SEND_HWM);
+
+                var pull = context.socket(SocketType.PULL);
+
+                // Never blocks: timer mode drains until empty and thread mode only reads sockets the poller reported.
+                pull.setReceiveTimeOut(0);
+
+                workers.add(new PluginWorker(worker, push));
+
+                pulls.add(pull);
+
+                success = push.bind(Util.workerAddress(Constants.ZMQ_PUSH_ADDRESS, worker)) && pull.bind(Util.workerAddress(Constants.ZMQ_PULL_ADDRESS, worker));
+            }
 
             if (!success)
             {
@@ -74,11 +189,64 @@ public class ZmqMessenger extends AbstractVerticle
             }
             else
             {
-                pull.setReceiveTimeOut(0);
+
+                LocalCodec.register(vertx, PollReply.class);
+
+                startRecorder();
+
+                pendingRequests = new PendingTracker<>(EXPECTED_PENDING_REQUESTS, REQUEST_TIMEOUT_CHECK_INTERVAL, System.currentTimeMillis());
 
                 vertx.eventBus().localConsumer(Constants.EVENTBUS_ZMQ_ADDRESS, this::handleRequest);
 
-                vertx.setPeriodic(RESPONSE_CHECK_INTERVAL_MS, id -> checkResponses());
+                vertx.eventBus().<JsonObject>localConsumer(Constants.EVENTBUS_PLUGIN_WORKER_ADDRESS, message -> onWorkerChange(message.body().getInteger(Constants.WORKER), message.body().getBoolean(Constants.ALIVE)));
+
+                vertx.eventBus().<JsonObject>localConsumer(Constants.EVENTBUS_DEVICE_REGISTRY_ADDRESS, message ->
+                {
+                    if (Constants.DELETE.equals(message.body().getString(Constants.OPERATION)) && message.body().getLong(Constants.DATABASE_JOB_ID) != null)
+                    {
+                        templates.remove(message.body().getLong(Constants.DATABASE_JOB_ID));
+                    }
+                });
+
+                vertx.eventBus().<JsonObject>localConsumer(Constants.EVENTBUS_PLUGIN_HEARTBEAT_ADDRESS, message -> message.reply(sendHeartbeats()));
+
+                vertx.eventBus().<JsonObject>localConsumer(Constants.EVENTBUS_ZMQ_STATS_ADDRESS, message -> message.reply(new JsonObject()
+                        .put(INTERACTIVE, interactiveLane.stats(System.currentTimeMillis()))
+                        .put(BULK, bulkLane.stats(System.currentTimeMillis()))
+                        .put(SEND_FAILURES, sendFailures)
+                        .put(RETRIED, retried)
+                        .put(PENDING_DISCOVERY, pendingRequests.size())
+                        .put(FAILED_FAST, failedFast)
+                        .put(RECEIVE_MODE, receiver != null ? Constants.ZMQ_RECEIVE_THREAD : Constants.ZMQ_RECEIVE_TIMER)
+                        .put(RECEIVED, received)
+                        .put(HANDOFF_P50_US, handoffLatency.percentile(50))
+                        .put(HANDOFF_P99_US, handoffLatency.percentile(99))
+                        .put(LOOP_RUN_P99_US, loopRuns.percentile(99))
+                        .put(LOOP_BUSY_MS, loopBusyNanos / 1_000_000)
+                        .put(BATCH_SIZE, Constants.ZMQ_BATCH_SIZE)
+                        .put(ENVELOPES_SENT, envelopesSent)
+                        .put(BATCHED_REQUESTS, batchedRequests)
+                        .put(WIRE, codec.stats())
+                        .put(TEMPLATES, templates.stats())
+                        .put(RECORDER, recorder != null ? recorder.stats() : null)
+                        .put(Constants.WORKERS, new JsonArray(workers.stream().map(PluginWorker::stats).toList()))));
+
+                if (Constants.ZMQ_RECEIVE_TIMER.equals(Constants.ZMQ_RECEIVE_MODE))
+                {
+                    vertx.setPeriodic(RESPONSE_CHECK_INTERVAL_MS, id -> checkResponses());
+                }
+                else
+                {
+                    verticleContext = vertx.getOrCreateContext();
+
+                    receiving = true;
+
+                    receiver = new Thread(this::receiveLoop, RECEIVER_THREAD_NAME);
+
+                    receiver.setDaemon(true);
+
+                    receiver.start();
+                }
 
                 vertx.setPeriodic(REQUEST_TIMEOUT_CHECK_INTERVAL, id -> checkTimeouts());
 
@@ -93,102 +261,696 @@ public class ZmqMessenger extends AbstractVerticle
         }
     }
 
-    // Handles incoming ZMQ requests.
-    // Generates a unique request ID and adds it to the request.
-    // Stores the request in the pendingRequests map with a timestamp.
-    // Sends the request to the ZMQ dealer socket.
+    // Handles incoming ZMQ requests: discovery goes to the interactive lane and polling to the bulk lane, then the lanes
+    // are flushed. A request is failed at once if no plugin worker is alive, its lane is full or its template is missing.
     // @param message The incoming message containing the ZMQ request.
     private void handleRequest(Message<JsonObject> message)
     {
+        var now = System.currentTimeMillis();
+
+        if (leastOutstandingWorker() == null)
+        {
+            failFast(message, Constants.MESSAGE_PLUGIN_UNAVAILABLE);
+
+            return;
+        }
+
         if(message.body().getString(Constants.REQUEST_TYPE).equalsIgnoreCase(Constants.DISCOVERY))
         {
-            var requestId = UUID.randomUUID().toString();
+            if (!interactiveLane.offer(message, now))
+            {
+                failFast(message, Constants.MESSAGE_SEND_QUEUE_FULL);
+
+                return;
+            }
+
+            var requestId = nextRequestId++;
+
+            // Sent as a string, the plugin echoes the id back unchanged.
+            message.body().put(Constants.REQUEST_ID, Long.toString(requestId));
+
+            pendingRequests.track(requestId, now, now + REQUEST_TIMEOUT_MS, message);
+        }
+        else if (!acceptTemplate(message.body()))
+        {
+            failFast(message, Constants.MESSAGE_TEMPLATE_MISSING);
+
+            return;
+        }
+        else if (!bulkLane.offer(message, now))
+        {
+            failFast(message, Constants.MESSAGE_SEND_QUEUE_FULL);
+
+            return;
+        }
+
+        if (!retryScheduled && !flushLanes())
+        {
+            logger.warn("Sending Failed, queue is full. Retrying.");
+
+            scheduleRetry();
+        }
+    }
+
+    // Writes queued requests to the push socket, the whole interactive lane before any bulk request.
+    // @return false if the socket queue filled up before both lanes were empty.
+    private boolean flushLanes()
+    {
+        return flushLane(interactiveLane) && (Constants.ZMQ_BATCH_SIZE > 1 ? flushBatches(bulkLane) : flushLane(bulkLane));
+    }
+
+    // Batch protocol mode: writes bulk requests as envelopes of up to ZMQ_BATCH_SIZE requests in one frame,
+    // {"requestType": "batch", "requests": [...]}. A partial envelope is held back until its oldest request has
+    // waited ZMQ_BATCH_LINGER milliseconds, which bounds the latency batching adds.
+    private boolean flushBatches(SendLane lane)
+    {
+        while (!lane.isEmpty())
+        {
+            var now = System.currentTimeMillis();
+
+            if (lane.size() < Constants.ZMQ_BATCH_SIZE && now - lane.oldestQueuedAt() < Constants.ZMQ_BATCH_LINGER)
+            {
+                scheduleLinger(Constants.ZMQ_BATCH_LINGER - (now - lane.oldestQueuedAt()));
+
+                return true;
+            }
+
+            var worker = leastOutstandingWorker();
+
+            var requests = lane.peekBodies(Math.min(lane.size(), Constants.ZMQ_BATCH_SIZE), new JsonArray(), body -> expand(body, now));
+
+            if (requests.isEmpty())
+            {
+                // The template of the head request was dropped while it was queued, e.g. because the job was deleted.
+                var message = lane.peek();
+
+                lane.sent(now);
+
+                failFast(message, Constants.MESSAGE_TEMPLATE_MISSING);
+
+                continue;
+            }
+
+            // The envelope ends before a request whose template was dropped, which then heads the next envelope.
+            var count = requests.size();
+
+            envelope.clear();
+
+            envelope.put(Constants.REQUEST_TYPE, BATCH).put(REQUESTS, requests);
+
+            var frame = codec.encode(envelope);
+
+            if (worker == null || !worker.send(frame))
+            {
+                sendFailures++;
+
+                return false;
+            }
+
+            record(FrameRecorder.REQUEST, frame);
+
+            for (var i = 0; i < count; i++)
+            {
+                track(worker, lane.peek(), now);
+
+                lane.sent(now);
+            }
+
+            envelopesSent++;
+
+            batchedRequests += count;
+        }
+
+        return true;
+    }
+
+    private void scheduleLinger(long delay)
+    {
+        if (!lingerScheduled)
+        {
+            lingerScheduled = true;
+
+            vertx.setTimer(Math.max(1, delay), id ->
+            {
+                lingerScheduled = false;
+
+                if (!retryScheduled && !flushLanes())
+                {
+                    scheduleRetry();
+                }
+            });
+        }
+    }
+
+    private boolean flushLane(SendLane lane)
+    {
+        while (!lane.isEmpty())
+        {
+            var worker = leastOutstandingWorker();
+
+            var now = System.currentTimeMillis();
+
+            var message = lane.peek();
+
+            var frame = worker == null ? null : frame(message.body(), now);
+
+            if (worker != null && frame == null)
+            {
+                // The template was dropped while the request was queued, e.g. because the job was deleted.
+                lane.sent(now);
+
+                failFast(message, Constants.MESSAGE_TEMPLATE_MISSING);
+
+                continue;
+            }
+
+            if (worker == null || !worker.send(frame))
+            {
+                sendFailures++;
+
+                return false;
+            }
+
+            record(FrameRecorder.REQUEST, frame);
+
+            track(worker, message, now);
+
+            lane.sent(now);
+        }
+
+        return true;
+    }
+
+    // Stores a full polling request as the template of its job. A slim request, carrying only the job id, sequence id,
+    // metric groups and device version, is later sent from the template of that version.
+    // @return false if the request is a slim one and its template is missing.
+    private boolean acceptTemplate(JsonObject body)
+    {
+        var version = body.getLong(Constants.TEMPLATE_VERSION);
+
+        if (version == null)
+        {
+            return true;
+        }
+
+        var jobId = body.getLong(Constants.DATABASE_JOB_ID);
+
+        if (body.containsKey(Constants.IP))
+        {
+            templates.put(jobId, version, body);
+
+            return true;
+        }
+
+        return templates.contains(jobId, version);
+    }
+
+    // @return The encoded request, from the job's template for polling requests that have one, or null if the
+    //         request is a slim one whose template has been dropped.
+    private byte[] frame(JsonObject body, long now)
+    {
+        var version = body.getLong(Constants.TEMPLATE_VERSION);
+
+        if (version == null)
+        {
+            return codec.encode(body);
+        }
+
+        return templates.encode(body.getLong(Constants.DATABASE_JOB_ID), version, body.getInteger(Constants.METRIC_GROUPS), body.getLong(Constants.REQUEST_ID), now);
+    }
+
+    // @return The full form of a request for embedding in a batch envelope, or null if the request is a slim one whose
+    //         template has been dropped.
+    private JsonObject expand(JsonObject body, long now)
+    {
+        var version = body.getLong(Constants.TEMPLATE_VERSION);
+
+        var expanded = version == null ? null : templates.body(body.getLong(Constants.DATABASE_JOB_ID), version, body.getInteger(Constants.METRIC_GROUPS), body.getLong(Constants.REQUEST_ID), now);
+
+        if (expanded != null)
+        {
+            return expanded;
+        }
+
+        // A full request carries the device itself, a slim one cannot be sent without its template.
+        return version == null || body.containsKey(Constants.IP) ? body : null;
+    }
+
+    // @return The live worker with the fewest outstanding requests, or null if no worker is alive.
+    private PluginWorker leastOutstandingWorker()
+    {
+        PluginWorker least = null;
+
+        for (var worker : workers)
+        {
+            if (worker.isAlive() && (least == null || worker.outstanding() < least.outstanding()))
+            {
+                least = worker;
+            }
+        }
+
+        return least;
+    }
+
+    private void track(PluginWorker worker, Message<JsonObject> message, long now)
+    {
+        worker.track(workerKey(message.body()), message, now, now + REQUEST_TIMEOUT_MS);
+    }
+
+    // Polling requests are keyed by job id, discovery requests by their negated request id.
+    private static long workerKey(JsonObject body)
+    {
+        return body.getString(Constants.REQUEST_TYPE).equalsIgnoreCase(Constants.DISCOVERY)
+                ? -Long.parseLong(body.getString(Constants.REQUEST_ID))
+                : Long.parseLong(String.valueOf(body.getValue(Constants.DATABASE_JOB_ID)));
+    }
+
+    // Releases the request a reply answers from the worker that was sent it.
+    // @param key The worker key of the request, see workerKey.
+    // @return The time the request was written to the worker, or 0 if no worker had it outstanding.
+    private long release(long key)
+    {
+        for (var worker : workers)
+        {
+            var sentAt = worker.complete(key);
+
+            if (sentAt != PendingTracker.MISSING)
+            {
+                return sentAt;
+            }
+        }
+
+        return 0;
+    }
+
+    // Marks a worker down or up. The outstanding requests of a worker that went down are put back in front of
+    // their lanes and sent to the remaining workers. If it was the last live worker they are failed instead, together
+    // with everything still queued in the lanes.
+    private void onWorkerChange(int index, boolean alive)
+    {
+        if (index >= workers.size())
+        {
+            return;
+        }
+
+        var worker = workers.get(index);
+
+        worker.setAlive(alive);
+
+        if (!alive)
+        {
+            var now = System.currentTimeMillis();
+
+            if (leastOutstandingWorker() == null)
+            {
+                logger.error("Plugin worker {} is down and no worker is alive, failing {} outstanding and {} queued requests", index, worker.outstanding(), interactiveLane.size() + bulkLane.size());
+
+                worker.drain((key, sentAt, message) -> failFast(message, Constants.MESSAGE_PLUGIN_UNAVAILABLE));
+
+                failLane(interactiveLane);
+
+                failLane(bulkLane);
+
+                return;
+            }
+
+            worker.drain((key, sentAt, message) -> (key < 0 ? interactiveLane : bulkLane).addFirst(message, now));
+
+            logger.warn("Plugin worker {} is down, re-dispatching its requests to the other workers", index);
+        }
+        else
+        {
+            logger.info("Plugin worker {} is up", index);
+        }
+
+        if (!retryScheduled && !flushLanes())
+        {
+            scheduleRetry();
+        }
+    }
+
+    private void failLane(SendLane lane)
+    {
+        var now = System.currentTimeMillis();
+
+        while (!lane.isEmpty())
+        {
+            var message = lane.peek();
+
+            lane.sent(now);
+
+            failFast(message, Constants.MESSAGE_PLUGIN_UNAVAILABLE);
+        }
+    }
+
+    // Fails a request that cannot be sent. Discovery is answered with a 503 carrying the reason, a poll is handed
+    // back to the processor shard owning the job so it is released without waiting for the poll timeout.
+    private void failFast(Message<JsonObject> message, String reason)
+    {
+        failedFast++;
+
+        var body = message.body();
+
+        if (body.getString(Constants.REQUEST_TYPE).equalsIgnoreCase(Constants.DISCOVERY))
+        {
+            if (body.containsKey(Constants.REQUEST_ID))
+            {
+                pendingRequests.complete(Long.parseLong(body.getString(Constants.REQUEST_ID)));
+            }
+
+            message.fail(503, reason);
+        }
+        else
+        {
+            var jobId = Long.parseLong(String.valueOf(body.getValue(Constants.DATABASE_JOB_ID)));
+
+            vertx.eventBus().send(Util.shardAddress(Constants.EVENTBUS_POLLING_FAILURE_ADDRESS, Util.shardOf(jobId)), new JsonObject().put(Constants.DATABASE_JOB_ID, jobId).put(Constants.ERROR, reason));
+        }
+    }
+
+    // Sends a health check frame to every live worker; the ok frames are recorded as they arrive.
+    // @return The last acknowledgement time of every worker.
+    private JsonObject sendHeartbeats()
+    {
+        var heartbeats = new JsonArray();
+
+        for (var worker : workers)
+        {
+            if (worker.isAlive())
+            {
+                worker.send(HEARTBEAT);
+            }
+
+            heartbeats.add(new JsonObject().put(Constants.WORKER, worker.index()).put(Constants.ALIVE, worker.isAlive()).put(Constants.LAST_HEARTBEAT, worker.lastHeartbeat()));
+        }
+
+        return new JsonObject().put(Constants.WORKERS, heartbeats);
+    }
+
+    private void scheduleRetry()
+    {
+        if (!retryScheduled)
+        {
+            retryScheduled = true;
+
+            vertx.setTimer(SEND_RETRY_INTERVAL_MS, id -> retrySends());
+        }
+    }
+
+    // Retries the queued requests until both lanes are empty or the socket is full again.
+    private void retrySends()
+    {
+        retryScheduled = false;
+
+        var queued = interactiveLane.size() + bulkLane.size();
+
+        var drained = flushLanes();
+
+        retried += queued - interactiveLane.size() - bulkLane.size();
+
+        if (!drained)
+        {
+            scheduleRetry();
+
+            return;
+        }
+
+        logger.info("Send lanes drained, {} requests resent so far", retried);
+    }
+
+    // Timer mode: drains the PULL sockets on the event loop, parsing every response there.
+    // Replies wait for the next timer tick, up to RESPONSE_CHECK_INTERVAL_MS.
+    private void checkResponses()
+    {
+        var startTime = System.nanoTime();
+
+        for (var worker = 0; worker < pulls.size(); worker++)
+        {
+            var replies = new ArrayList<>();
+
+            var acked = false;
+
+            byte[] response;
+
+            while ((response = pulls.get(worker).recv()) != null)
+            {
+                acked |= collect(response, replies);
+            }
+
+            handleReplies(worker, replies, acked, System.currentTimeMillis());
+        }
+
+        recordLoopRun(startTime);
+    }
+
+    // Thread mode: waits on the PULL sockets of all workers on a dedicated thread and hands decoded replies to the
+    // verticle's context as they arrive. Frames already queued on a socket are handed over together, up to
+    // RECEIVE_BATCH_SIZE, so a burst costs one context switch instead of one per reply.
+    // The sockets are only used by this thread and closed by it when the verticle stops.
+    private void receiveLoop()
+    {
+        var poller = context.poller(pulls.size());
+
+        pulls.forEach(pull -> poller.register(pull, ZMQ.Poller.POLLIN));
+
+        while (receiving)
+        {
+            // Bounded wait so the receiver notices when the verticle stops.
+            if (poller.poll(RECEIVER_TIMEOUT_MS) <= 0)
+            {
+                continue;
+            }
+
+            for (var worker = 0; worker < pulls.size(); worker++)
+            {
+                if (!poller.pollin(worker))
+                {
+                    continue;
+                }
+
+                var receivedAt = System.nanoTime();
+
+                var receivedAtMillis = System.currentTimeMillis();
+
+                var replies = new ArrayList<>();
+
+                var acked = false;
+
+                byte[] response;
+
+                while (replies.size() < RECEIVE_BATCH_SIZE && (response = pulls.get(worker).recv(ZMQ.DONTWAIT)) != null)
+                {
+                    acked |= collect(response, replies);
+                }
+
+                var index = worker;
+
+                var heartbeat = acked;
+
+                verticleContext.runOnContext(v ->
+                {
+                    var startTime = System.nanoTime();
+
+                    handoffLatency.record((startTime - receivedAt) / 1_000);
+
+                    handleReplies(index, replies, heartbeat, receivedAtMillis);
+
+                    recordLoopRun(startTime);
+                });
+            }
+        }
+
+        poller.close();
+
+        pulls.forEach(ZMQ.Socket::close);
+    }
+
+    // @return true if the frame is a heartbeat acknowledgement, otherwise adds the decoded reply if it is valid.
+    private boolean collect(byte[] response, List<Object> replies)
+    {
+        if (Arrays.equals(response, HEARTBEAT_ACK))
+        {
+            return true;
+        }
+
+        record(FrameRecorder.REPLY, response);
+
+        var reply = parse(response);
+
+        if (reply != null)
+        {
+            replies.add(reply);
+        }
+
+        return false;
+    }
+
+    private void handleReplies(int worker, List<Object> replies, boolean acked, long receivedAt)
+    {
+        repliesReceivedAt = receivedAt;
+
+        if (acked)
+        {
+            workers.get(worker).heartbeatAcked(System.currentTimeMillis());
+        }
+
+        replies.forEach(this::handleReply);
+
+        received += replies.size();
+    }
+
+    // Opens the recorder if a recording file is configured. Recording is optional, so a file that cannot be opened
+    // is logged and the messenger runs without it.
+    private void startRecorder()
+    {
+        if (Constants.ZMQ_RECORD_FILE.isEmpty())
+        {
+            return;
+        }
+
+        try
+        {
+            recorder = new FrameRecorder(Path.of(Constants.ZMQ_RECORD_FILE), Constants.ZMQ_RECORD_MAX_BYTES);
+        }
+        catch (IOException e)
+        {
+            logger.error("Failed to open recording {}, frames are not recorded: {}", Constants.ZMQ_RECORD_FILE, e.getMessage());
+        }
+    }
 
-            message.body().put(REQUEST_ID, requestId);
+    // Records a frame sent to or received from the plugin, if recording is on. Heartbeats are not recorded.
+    private void record(byte direction, byte[] frame)
+    {
+        if (recorder != null)
+        {
+            recorder.record(direction, frame);
+        }
+    }
+
+    private void recordLoopRun(long startTime)
+    {
+        var elapsed = System.nanoTime() - startTime;
 
-            pendingRequests.put(requestId, new PendingRequest(message, System.currentTimeMillis()));
+        loopRuns.record(elapsed / 1_000);
 
+        loopBusyNanos += elapsed;
+    }
+
+    // @return The decoded response, a PollReply for polling replies and a JsonObject for any other reply, or null if
+    //         it is empty or neither valid JSON nor valid CBOR.
+    private Object parse(byte[] response)
+    {
+        if (response.length == 0)
+        {
+            return null;
         }
 
-        if (!push.send(message.body().toString(),ZMQ.DONTWAIT))
+        try
+        {
+            var pollReply = codec.decodePollReply(response);
+
+            return pollReply != null ? pollReply : codec.decode(response);
+        }
+        catch (Exception e)
         {
-            logger.error("Sending Failed, queue is full");
+            logger.error("Failed to decode response of {} bytes from plugin: {}", response.length, e.getMessage());
+
+            return null;
         }
     }
 
-     // Checks for and processes any incoming responses from the ZMQ dealer socket.
-     // Polls for new responses.
-     // Parses the response and matches it to a pending request using the request ID.
-     private void checkResponses()
-     {
-         String response;
+    // Matches a discovery reply to its pending request using the request ID, and routes a polling reply to the
+    // processor shard owning the job. A batch envelope is unpacked and each of its results handled in turn.
+    // Polling replies are stamped with the time their request was written to the worker and the reply was read, so
+    // the processor can split the latency of the poll into its stages, and handed over by reference as PollReply.
+    private void handleReply(Object decoded)
+    {
+        try
+        {
+            if (decoded instanceof PollReply pollReply)
+            {
+                vertx.eventBus().send(Util.shardAddress(Constants.EVENTBUS_POLLING_REPLY_ADDRESS, Util.shardOf(pollReply.jobId())), pollReply.stamped(release(pollReply.jobId()), repliesReceivedAt));
 
-         while ((response = pull.recvStr()) != null)
-         {
-             if (response.trim().isEmpty())
-             {
-                 continue;
-             }
+                return;
+            }
 
-             try
-             {
-                 var reply = new JsonObject(response);
+            var reply = (JsonObject) decoded;
 
-                 if (reply.getString(Constants.REQUEST_TYPE).equalsIgnoreCase(Constants.DISCOVERY))
-                 {
-                     var pendingRequest = pendingRequests.remove(reply.getString(REQUEST_ID));
+            if (BATCH.equalsIgnoreCase(reply.getString(Constants.REQUEST_TYPE)))
+            {
+                reply.getJsonArray(RESULTS).forEach(result -> handleReply((JsonObject) result));
+            }
+            else if (reply.getString(Constants.REQUEST_TYPE).equalsIgnoreCase(Constants.DISCOVERY))
+            {
+                release(workerKey(reply));
+
+                var requestId = Long.parseLong(reply.getString(Constants.REQUEST_ID));
+
+                var pendingRequest = pendingRequests.ref(requestId);
+
+                reply.remove(Constants.REQUEST_ID);
 
-                     reply.remove(REQUEST_ID);
+                if (pendingRequest != null)
+                {
+                    pendingRequests.complete(requestId);
 
-                     if (pendingRequest != null)
-                     {
-                         pendingRequest.message.reply(reply);
-                     }
-                     else
-                     {
-                         logger.error("No pending request found for request_id: {}", reply.getString(REQUEST_ID));
-                     }
-                 }
-                 else
-                 {
-                     vertx.eventBus().send(Constants.EVENTBUS_POLLING_REPLY_ADDRESS, reply);
-                 }
-             }
-             catch (Exception e)
-             {
-                 logger.error("Failed to parse response as JSON: {} from plugin", response, e);
-             }
-         }
-     }
+                    pendingRequest.reply(reply);
+                }
+                else
+                {
+                    logger.error("No pending request found for request_id: {}", requestId);
+                }
+            }
+            else
+            {
+                handleReply(PollReply.fromJson(reply));
+            }
+        }
+        catch (Exception e)
+        {
+            logger.error("Failed to handle reply {} from plugin", decoded, e);
+        }
+    }
 
     // Checks for and handles any pending requests that have timed out.
-    // If the request has exceeded the timeout threshold, it logs a warning and sends a failure response to the original message.
-    // Removes the timed-out request from the pending requests map.
+    // Expired requests are removed by the tracker, which only looks at the wheel slots due since the previous check.
+    // Each one is logged and answered with a failure response to the original message.
     private void checkTimeouts()
     {
-        var timedOutRequests = pendingRequests.entrySet().stream()
-                .filter(entry -> System.currentTimeMillis() - entry.getValue().timestamp >= REQUEST_TIMEOUT_MS)
-                .toList();
+        workers.forEach(worker -> worker.expire(System.currentTimeMillis()));
 
-        timedOutRequests.forEach(entry ->
+        pendingRequests.expire(System.currentTimeMillis(), (requestId, sentAt, message) ->
         {
-            logger.warn("Request {} timed out", entry.getKey());
+            logger.warn("Request {} timed out", requestId);
 
-            entry.getValue().message.fail(408, REQUEST_TIMED_OUT);
-
-            pendingRequests.remove(entry.getKey());
+            message.fail(408, REQUEST_TIMED_OUT);
         });
     }
 
     @Override
     public void stop(Promise<Void> stopPromise)
     {
-        if (push != null) push.close();
+        if (receiver != null)
+        {
+            receiving = false;
+
+            try
+            {
+                receiver.join(RECEIVER_TIMEOUT_MS * 2);
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+        else pulls.forEach(ZMQ.Socket::close);
 
-        if (pull != null) pull.close();
+        workers.forEach(PluginWorker::close);
 
         if (context != null) context.close();
 
+        if (recorder != null) recorder.close();
+
         stopPromise.complete();
     }
 }
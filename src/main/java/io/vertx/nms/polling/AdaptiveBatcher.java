@@ -0,0 +1,201 @@
+package io.vertx.nms.polling;
+
+import io.vertx.core.Future;
+import io.vertx.core.json.JsonObject;
+import io.vertx.nms.util.Constants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+// Batches polling results for insertion and sizes the batches from the observed insert throughput.
+// The batch size is the number of rows the database is currently able to store within the target latency, bounded by min and max.
+// A batch is flushed when it reaches that size or when its oldest row reaches the staleness deadline.
+// At most a fixed number of batches are in flight; rows queue up behind them and the owner is told to stop producing once the queue is full.
+public class AdaptiveBatcher
+{
+    private static final Logger logger = LoggerFactory.getLogger(AdaptiveBatcher.class);
+
+    private static final long TARGET_INSERT_LATENCY = 250;
+
+    private static final double THROUGHPUT_SMOOTHING = 0.3;
+
+    private static final String BATCH_SIZE = "batch_size";
+
+    private static final String QUEUED = "queued";
+
+    private static final String IN_FLIGHT_BATCHES = "in_flight_batches";
+
+    private static final String ROWS_PER_MS = "rows_per_ms";
+
+    private static final String SATURATED = "saturated";
+
+    private static final String FAILED_BATCHES = "failed_batches";
+
+    private static final String DROPPED_ROWS = "dropped_rows";
+
+    private final ArrayDeque<PollRow> queue = new ArrayDeque<>();
+
+    private final Function<List<PollRow>, Future<?>> writer;
+
+    private final Runnable onUnsaturated;
+
+    private final int minBatchSize;
+
+    private final int maxBatchSize;
+
+    private final long maxStaleness;
+
+    private final int maxInFlight;
+
+    private final int maxQueued;
+
+    private int batchSize;
+
+    private int inFlight;
+
+    private double rowsPerMs;
+
+    private boolean saturated;
+
+    private long failedBatches;
+
+    private long droppedRows;
+
+    // @param writer Stores a batch and completes once the database has acknowledged it.
+    // @param onUnsaturated Called when the queue has drained below its limit after being full.
+    public AdaptiveBatcher(Function<List<PollRow>, Future<?>> writer, Runnable onUnsaturated)
+    {
+        this.writer = writer;
+
+        this.onUnsaturated = onUnsaturated;
+
+        this.minBatchSize = Constants.INGEST_MIN_BATCH_SIZE;
+
+        this.maxBatchSize = Constants.INGEST_MAX_BATCH_SIZE;
+
+        this.maxStaleness = Constants.INGEST_MAX_STALENESS;
+
+        this.maxInFlight = Constants.INGEST_MAX_IN_FLIGHT_BATCHES;
+
+        this.maxQueued = maxBatchSize * maxInFlight * 2;
+
+        this.batchSize = minBatchSize;
+    }
+
+    // Queues a row and flushes if a full batch is ready.
+    // @param row The row with job id, data and polled at time.
+    public void add(PollRow row)
+    {
+        queue.add(row);
+
+        if (queue.size() >= maxQueued && !saturated)
+        {
+            saturated = true;
+
+            logger.warn("Insert queue is full ({} rows, {} batches in flight). Applying backpressure.", queue.size(), inFlight);
+        }
+
+        flush(false);
+    }
+
+    // Flushes partial batches while the oldest queued row has reached the staleness deadline. Called periodically.
+    public void checkStaleness()
+    {
+        flush(true);
+    }
+
+    // Sends batches while an in-flight slot is free and there is a full batch, or a stale row when stale batches are allowed.
+    // Rows are queued in polled_at order, so the head of the queue is the oldest row.
+    private void flush(boolean flushStale)
+    {
+        while (inFlight < maxInFlight && !queue.isEmpty() && (queue.size() >= batchSize || (flushStale && isStale())))
+        {
+            var batch = new ArrayList<PollRow>(Math.min(batchSize, queue.size()));
+
+            while (batch.size() < batchSize && !queue.isEmpty())
+            {
+                batch.add(queue.poll());
+            }
+
+            inFlight++;
+
+            var startTime = System.currentTimeMillis();
+
+            writer.apply(batch).onComplete(result ->
+            {
+                inFlight--;
+
+                if (result.succeeded())
+                {
+                    adapt(batch.size(), System.currentTimeMillis() - startTime);
+                }
+                else
+                {
+                    // The writer already retried what it could, the rows of a failed batch are lost.
+                    failedBatches++;
+
+                    droppedRows += batch.size();
+
+                    batchSize = Math.max(minBatchSize, batchSize / 2);
+
+                    logger.error("Failed to store a batch of {} rows, rows dropped, batch size now {}: {}", batch.size(), batchSize, result.cause().getMessage());
+                }
+
+                if (saturated && queue.size() < maxQueued / 2)
+                {
+                    saturated = false;
+
+                    logger.info("Insert queue drained to {} rows. Releasing backpressure.", queue.size());
+
+                    onUnsaturated.run();
+                }
+
+                flush(true);
+            });
+        }
+    }
+
+    private boolean isStale()
+    {
+        return System.currentTimeMillis() - queue.peek().polledAt() >= maxStaleness;
+    }
+
+    // Updates the throughput estimate and resizes the batch to what the database stores within the target latency.
+    // When rows are queuing behind every in-flight batch the size is allowed to grow to the queue share of each slot.
+    private void adapt(int rows, long latency)
+    {
+        var sample = rows / (double) Math.max(1, latency);
+
+        rowsPerMs = rowsPerMs == 0 ? sample : rowsPerMs + THROUGHPUT_SMOOTHING * (sample - rowsPerMs);
+
+        var size = (int) (rowsPerMs * TARGET_INSERT_LATENCY);
+
+        if (inFlight >= maxInFlight - 1)
+        {
+            size = Math.max(size, queue.size() / maxInFlight);
+        }
+
+        batchSize = Math.max(minBatchSize, Math.min(maxBatchSize, size));
+    }
+
+    public boolean isSaturated()
+    {
+        return saturated;
+    }
+
+    public JsonObject stats()
+    {
+        return new JsonObject()
+                .put(BATCH_SIZE, batchSize)
+                .put(QUEUED, queue.size())
+                .put(IN_FLIGHT_BATCHES, inFlight)
+                .put(ROWS_PER_MS, rowsPerMs)
+                .put(SATURATED, saturated)
+                .put(FAILED_BATCHES, failedBatches)
+                .put(DROPPED_ROWS, droppedRows);
+    }
+}
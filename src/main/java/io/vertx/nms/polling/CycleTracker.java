@@ -0,0 +1,216 @@
+package io.vertx.nms.polling;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.nms.util.Constants;
+import io.vertx.nms.util.LatencyHistogram;
+
+// Statistics of the poll cycles of one processor shard.
+// Devices are scheduled individually, so a cycle is a fixed window of wall clock time (the default poll interval) and
+// its id is the window number since the epoch. Every poll belongs to the cycle it was sent in and stays outstanding
+// there until it is answered, times out or is dropped. A cycle that still has outstanding polls when the next window
+// starts has overrun; it keeps counting until the last of them resolves.
+// The last few cycles are kept in a ring; polls resolving after their cycle has left the ring are not counted.
+public class CycleTracker
+{
+    private static final int HISTORY = 12;
+
+    private static final String CYCLE_ID = "cycle_id";
+
+    private static final String STARTED_AT = "started_at";
+
+    private static final String DISPATCHED = "dispatched";
+
+    private static final String ANSWERED = "answered";
+
+    private static final String TIMED_OUT = "timed_out";
+
+    private static final String DROPPED = "dropped";
+
+    private static final String OUTSTANDING = "outstanding";
+
+    private static final String OVERRUNS = "overruns";
+
+    private static final String OVERRUN = "overrun";
+
+    private static final String FINISHED_AT = "finished_at";
+
+    private static final String LATENCY = "latency";
+
+    private static final class Cycle
+    {
+        private long id = -1;
+
+        private int dispatched;
+
+        private int answered;
+
+        private int timedOut;
+
+        private int dropped;
+
+        private int outstanding;
+
+        private int overruns;
+
+        private long finishedAt;
+
+        private final LatencyHistogram latency = new LatencyHistogram();
+
+        private void reset(long id)
+        {
+            this.id = id;
+
+            dispatched = answered = timedOut = dropped = outstanding = overruns = 0;
+
+            finishedAt = 0;
+
+            latency.reset();
+        }
+    }
+
+    private final Cycle[] cycles = new Cycle[HISTORY];
+
+    private final long window;
+
+    public CycleTracker()
+    {
+        this.window = Constants.POLLING_CYCLE_WINDOW;
+
+        for (var i = 0; i < HISTORY; i++)
+        {
+            cycles[i] = new Cycle();
+        }
+    }
+
+    public void onDispatched(long now)
+    {
+        var cycle = current(now);
+
+        cycle.dispatched++;
+
+        cycle.outstanding++;
+    }
+
+    // @param sentAt The send time of the answered poll, which selects its cycle.
+    // @param now The time the reply arrived.
+    public void onAnswered(long sentAt, long now)
+    {
+        var cycle = of(sentAt);
+
+        if (cycle != null)
+        {
+            cycle.answered++;
+
+            cycle.latency.record(now - sentAt);
+
+            resolve(cycle, now);
+        }
+    }
+
+    public void onTimedOut(long sentAt, long now)
+    {
+        var cycle = of(sentAt);
+
+        if (cycle != null)
+        {
+            cycle.timedOut++;
+
+            resolve(cycle, now);
+        }
+    }
+
+    // Records an outstanding poll that was abandoned, e.g. replaced by a newer poll of the same device.
+    public void onAbandoned(long sentAt, long now)
+    {
+        var cycle = of(sentAt);
+
+        if (cycle != null)
+        {
+            cycle.dropped++;
+
+            resolve(cycle, now);
+        }
+    }
+
+    // Records a poll that was due while the previous poll of the same device was still outstanding.
+    // @param dropped true if the policy discarded the new poll.
+    public void onOverrun(long now, boolean dropped)
+    {
+        var cycle = current(now);
+
+        cycle.overruns++;
+
+        if (dropped)
+        {
+            cycle.dropped++;
+        }
+    }
+
+    // @return The tracked cycles, oldest first, each with its latency histogram buckets so shards can be merged.
+    // finished_at is 0 while polls of the cycle are outstanding.
+    public JsonArray stats(long now)
+    {
+        var currentId = now / window;
+
+        var result = new JsonArray();
+
+        for (var id = currentId - HISTORY + 1; id <= currentId; id++)
+        {
+            var cycle = cycles[(int) (id % HISTORY)];
+
+            if (cycle.id != id)
+            {
+                continue;
+            }
+
+            result.add(new JsonObject()
+                    .put(CYCLE_ID, id)
+                    .put(STARTED_AT, id * window)
+                    .put(DISPATCHED, cycle.dispatched)
+                    .put(ANSWERED, cycle.answered)
+                    .put(TIMED_OUT, cycle.timedOut)
+                    .put(DROPPED, cycle.dropped)
+                    .put(OUTSTANDING, cycle.outstanding)
+                    .put(OVERRUNS, cycle.overruns)
+                    .put(OVERRUN, cycle.finishedAt > (id + 1) * window || (id < currentId && cycle.outstanding > 0))
+                    .put(FINISHED_AT, cycle.outstanding == 0 ? cycle.finishedAt : 0)
+                    .put(LATENCY, cycle.latency.toJson()));
+        }
+
+        return result;
+    }
+
+    private void resolve(Cycle cycle, long now)
+    {
+        cycle.outstanding--;
+
+        if (cycle.outstanding == 0)
+        {
+            cycle.finishedAt = now;
+        }
+    }
+
+    private Cycle current(long now)
+    {
+        var id = now / window;
+
+        var cycle = cycles[(int) (id % HISTORY)];
+
+        if (cycle.id != id)
+        {
+            cycle.reset(id);
+        }
+
+        return cycle;
+    }
+
+    private Cycle of(long sentAt)
+    {
+        var id = sentAt / window;
+
+        var cycle = cycles[(int) (id % HISTORY)];
+
+        return cycle.id == id ? cycle : null;
+    }
+}
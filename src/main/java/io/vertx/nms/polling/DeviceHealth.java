@@ -0,0 +1,277 @@
+package io.vertx.nms.polling;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.nms.util.Constants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+// Health state of the devices polled by one processor shard.
+// Each device has a circuit breaker: after a number of consecutive timeouts it opens and the device is skipped
+// for a number of poll cycles that doubles with every further timeout, up to a maximum. When the skips are used up one
+// probe poll is let through; an answer closes the breaker, a timeout opens it again with a longer backoff.
+// The response timeout of each device is derived from its recent response times instead of one fixed value,
+// so a dead device holds a plugin slot for a few times its usual latency rather than for minutes.
+public class DeviceHealth
+{
+    private static final Logger logger = LoggerFactory.getLogger(DeviceHealth.class);
+
+    private static final int SAMPLES = 16;
+
+    private static final int MIN_SAMPLES = 4;
+
+    private static final double TIMEOUT_PERCENTILE = 0.95;
+
+    private static final int TIMEOUT_MULTIPLIER = 3;
+
+    private static final String CLOSED = "closed";
+
+    private static final String OPEN = "open";
+
+    private static final String HALF_OPEN = "half_open";
+
+    private static final String STATE = "state";
+
+    private static final String FAILURES = "failures";
+
+    private static final String SKIP_REMAINING = "skip_remaining";
+
+    private static final String TIMEOUT = "timeout";
+
+    private static final String SKIPPED = "skipped";
+
+    private static final String TIMEOUTS = "timeouts";
+
+    private static final String DEVICES = "devices";
+
+    private static final class Device
+    {
+        private final long[] samples = new long[SAMPLES];
+
+        private int sampleCount;
+
+        private int nextSample;
+
+        private String state = CLOSED;
+
+        private int failures;
+
+        private int skipRemaining;
+
+        private long lastSentAt;
+
+        private long timeout;
+    }
+
+    private final Map<Long, Device> devices = new HashMap<>();
+
+    private final long[] sorted = new long[SAMPLES];
+
+    private final long minTimeout;
+
+    private final long maxTimeout;
+
+    private long skipped;
+
+    private long timeouts;
+
+    public DeviceHealth()
+    {
+        this.minTimeout = Constants.POLLING_MIN_TIMEOUT;
+
+        this.maxTimeout = Constants.POLLING_MAX_TIMEOUT;
+    }
+
+    // Decides whether the device is polled this cycle. An open breaker uses up one skip, or turns half open once
+    // no skips remain and lets a single probe through.
+    // @param jobId The job id of the device.
+    // @return true if the device should be polled.
+    public boolean shouldPoll(long jobId)
+    {
+        var device = devices.get(jobId);
+
+        if (device == null || device.state.equals(CLOSED))
+        {
+            return true;
+        }
+
+        if (device.state.equals(OPEN) && device.skipRemaining == 0)
+        {
+            device.state = HALF_OPEN;
+
+            return true;
+        }
+
+        // Open with skips left, or half open with the probe still outstanding.
+        if (device.skipRemaining > 0)
+        {
+            device.skipRemaining--;
+        }
+
+        skipped++;
+
+        return false;
+    }
+
+    // @return The response timeout for the device in milliseconds.
+    public long timeout(long jobId)
+    {
+        var device = devices.get(jobId);
+
+        return device == null || device.timeout == 0 ? maxTimeout : device.timeout;
+    }
+
+    public void onSent(long jobId, long now)
+    {
+        devices.computeIfAbsent(jobId, id -> new Device()).lastSentAt = now;
+    }
+
+    // Records a reply, including one arriving after its request already timed out, and closes the breaker.
+    // @param jobId The job id of the device.
+    // @param now The time the reply arrived in milliseconds.
+    public void onReply(long jobId, long now)
+    {
+        var device = devices.get(jobId);
+
+        if (device == null)
+        {
+            return;
+        }
+
+        if (!device.state.equals(CLOSED))
+        {
+            logger.info("Device of job {} answered again after {} timeouts, closing breaker", jobId, device.failures);
+        }
+
+        device.state = CLOSED;
+
+        device.failures = 0;
+
+        device.skipRemaining = 0;
+
+        if (device.lastSentAt > 0)
+        {
+            device.samples[device.nextSample] = now - device.lastSentAt;
+
+            device.nextSample = (device.nextSample + 1) % SAMPLES;
+
+            device.sampleCount = Math.min(device.sampleCount + 1, SAMPLES);
+
+            device.timeout = adaptiveTimeout(device);
+        }
+    }
+
+    // Records a poll that ended without a reply or a timeout, e.g. one the messenger could not send or one abandoned
+    // by the overlap policy. The device is not blamed, but a probe that ended this way puts the breaker back to open
+    // with no skips left, so the next cycle sends a new probe instead of waiting for one that will never be answered.
+    // @param jobId The job id of the device.
+    public void onAbandoned(long jobId)
+    {
+        var device = devices.get(jobId);
+
+        if (device != null && device.state.equals(HALF_OPEN))
+        {
+            device.state = OPEN;
+
+            device.skipRemaining = 0;
+        }
+    }
+
+    // Records a timeout and opens the breaker once the device has failed often enough in a row.
+    // @param jobId The job id of the device.
+    public void onTimeout(long jobId)
+    {
+        var device = devices.computeIfAbsent(jobId, id -> new Device());
+
+        timeouts++;
+
+        device.failures++;
+
+        if (device.failures >= Constants.POLLING_FAILURE_THRESHOLD)
+        {
+            var backoff = 1 << Math.min(device.failures - Constants.POLLING_FAILURE_THRESHOLD, 30);
+
+            device.skipRemaining = Math.min(backoff, Constants.POLLING_MAX_BACKOFF_CYCLES);
+
+            if (device.state.equals(CLOSED))
+            {
+                logger.warn("Device of job {} timed out {} times in a row, opening breaker", jobId, device.failures);
+            }
+
+            device.state = OPEN;
+        }
+    }
+
+    // Forgets the device of a deleted job.
+    // @param jobId The job id of the device.
+    public void remove(long jobId)
+    {
+        devices.remove(jobId);
+    }
+
+    // @return Counts per breaker state and the details of every device whose breaker is not closed.
+    public JsonObject stats()
+    {
+        var open = 0;
+
+        var halfOpen = 0;
+
+        var details = new JsonArray();
+
+        for (var entry : devices.entrySet())
+        {
+            var device = entry.getValue();
+
+            if (device.state.equals(CLOSED))
+            {
+                continue;
+            }
+
+            if (device.state.equals(OPEN))
+            {
+                open++;
+            }
+            else
+            {
+                halfOpen++;
+            }
+
+            details.add(new JsonObject()
+                    .put(Constants.DATABASE_JOB_ID, entry.getKey())
+                    .put(STATE, device.state)
+                    .put(FAILURES, device.failures)
+                    .put(SKIP_REMAINING, device.skipRemaining)
+                    .put(TIMEOUT, timeout(entry.getKey())));
+        }
+
+        return new JsonObject()
+                .put(CLOSED, devices.size() - open - halfOpen)
+                .put(OPEN, open)
+                .put(HALF_OPEN, halfOpen)
+                .put(SKIPPED, skipped)
+                .put(TIMEOUTS, timeouts)
+                .put(DEVICES, details);
+    }
+
+    // A multiple of the recent 95th percentile response time, bounded by the configured minimum and maximum.
+    // Until enough replies have been seen the maximum is used.
+    private long adaptiveTimeout(Device device)
+    {
+        if (device.sampleCount < MIN_SAMPLES)
+        {
+            return maxTimeout;
+        }
+
+        System.arraycopy(device.samples, 0, sorted, 0, device.sampleCount);
+
+        Arrays.sort(sorted, 0, device.sampleCount);
+
+        var percentile = sorted[(int) Math.ceil(device.sampleCount * TIMEOUT_PERCENTILE) - 1];
+
+        return Math.max(minTimeout, Math.min(maxTimeout, percentile * TIMEOUT_MULTIPLIER));
+    }
+}
@@ -0,0 +1,226 @@
+package io.vertx.nms.polling;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.nms.util.Constants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+public class DeviceRegistry
+{
+    private static final Logger logger = LoggerFactory.getLogger(DeviceRegistry.class);
+
+    private static final int FETCH_BATCH_SIZE = 1000;
+
+    private static final String DEVICE_QUERY = "SELECT p.id AS job_id, p.ip, p.port, p.poll_interval, p.priority, c.system_type, c.credentials " +
+            "FROM provisioning_jobs p JOIN credential_profile c ON p.credential_profile_id = c.id " +
+            "where p.deleted = FALSE AND ";
+
+    private static final String FETCH_PAGE_QUERY = DEVICE_QUERY + "p.id > $2 ORDER BY p.id LIMIT $1";
+
+    private static final String FETCH_BY_JOB_QUERY = DEVICE_QUERY + "p.id = $1";
+
+    private static final String FETCH_BY_CREDENTIAL_QUERY = DEVICE_QUERY + "p.credential_profile_id = $1";
+
+    private final Vertx vertx;
+
+    private Map<Long, JsonObject> devices = new HashMap<>();
+
+    // A change event received during a load, with the callbacks of the caller that applied it.
+    private record BufferedEvent(JsonObject event, Consumer<JsonObject> onAdded, Consumer<Long> onRemoved) {}
+
+    private final List<BufferedEvent> eventsDuringLoad = new ArrayList<>();
+
+    private boolean loaded = false;
+
+    private boolean loading = false;
+
+    // Stamped on every device read, so request templates built from an older read of a device are not reused.
+    private long nextVersion = 1;
+
+    public DeviceRegistry(Vertx vertx)
+    {
+        this.vertx = vertx;
+    }
+
+    // Loads every active provisioning job with its credential profile into memory using keyset pagination.
+    // The pages are read into a new map that replaces the current devices once the last page has arrived, so a reload
+    // never leaves the registry empty or half loaded. Change events received while the load is running are applied
+    // once it finishes, through the callbacks they were applied with.
+    // @return Future completed when the whole fleet has been loaded.
+    public Future<Void> load()
+    {
+        var promise = Promise.<Void>promise();
+
+        if (loading)
+        {
+            promise.fail("Device registry load already in progress");
+
+            return promise.future();
+        }
+
+        loading = true;
+
+        fetchPage(new HashMap<>(), 0, System.currentTimeMillis(), 0, promise);
+
+        return promise.future();
+    }
+
+    // Fetches one page of devices after the given job id and continues until a short page is returned.
+    // @param fetched The devices read so far.
+    // @param lastJobId The highest job id already loaded.
+    // @param startTime The time at which the load started, used for logging the fetch cost.
+    // @param pageCount The number of pages fetched so far.
+    // @param promise The promise completed once all pages are loaded.
+    private void fetchPage(Map<Long, JsonObject> fetched, long lastJobId, long startTime, int pageCount, Promise<Void> promise)
+    {
+        vertx.eventBus().<JsonObject>request(Constants.EVENTBUS_DATABASE_ADDRESS, new JsonObject().put(Constants.QUERY, FETCH_PAGE_QUERY).put(Constants.PARAMS, new JsonArray().add(FETCH_BATCH_SIZE).add(lastJobId)), reply ->
+        {
+            if (reply.succeeded())
+            {
+                var data = reply.result().body().getJsonArray(Constants.DATA);
+
+                if (data != null && !data.isEmpty())
+                {
+                    data.forEach(entry -> put(fetched, (JsonObject) entry));
+
+                    if (data.size() == FETCH_BATCH_SIZE)
+                    {
+                        fetchPage(fetched, data.getJsonObject(data.size() - 1).getLong(Constants.DATABASE_JOB_ID), startTime, pageCount + 1, promise);
+
+                        return;
+                    }
+                }
+
+                devices = fetched;
+
+                var elapsed = System.currentTimeMillis() - startTime;
+
+                logger.info("Device registry loaded: {} devices in {} pages, {} ms ({} ms per 1k devices)",
+                        devices.size(), pageCount + 1, elapsed, devices.isEmpty() ? 0 : elapsed * 1000 / devices.size());
+
+                loading = false;
+
+                loaded = true;
+
+                eventsDuringLoad.forEach(buffered -> apply(buffered.event(), buffered.onAdded(), buffered.onRemoved()));
+
+                eventsDuringLoad.clear();
+
+                promise.complete();
+            }
+            else
+            {
+                logger.error("Device registry load failed: {}", reply.cause().getMessage());
+
+                loading = false;
+
+                promise.fail(reply.cause());
+            }
+        });
+    }
+
+    // Applies a provisioning change event to the registry.
+    // insert re-reads the job, update re-reads all jobs of the credential profile and delete removes the job.
+    // @param event The change event containing the operation and the job id or credential profile id.
+    // @param onAdded Called for every device that was added or refreshed by the event.
+    // @param onRemoved Called with the job id of a device that was removed by the event.
+    public void apply(JsonObject event, Consumer<JsonObject> onAdded, Consumer<Long> onRemoved)
+    {
+        if (loading)
+        {
+            eventsDuringLoad.add(new BufferedEvent(event, onAdded, onRemoved));
+
+            return;
+        }
+
+        switch (event.getString(Constants.OPERATION))
+        {
+            case Constants.INSERT -> refresh(FETCH_BY_JOB_QUERY, event.getLong(Constants.DATABASE_JOB_ID), onAdded);
+
+            case Constants.UPDATE -> refresh(FETCH_BY_CREDENTIAL_QUERY, event.getLong(Constants.DATABASE_CREDENTIAL_PROFILE_ID), onAdded);
+
+            case Constants.DELETE ->
+            {
+                if (devices.remove(event.getLong(Constants.DATABASE_JOB_ID)) != null)
+                {
+                    logger.info("Removed job {} from device registry", event.getLong(Constants.DATABASE_JOB_ID));
+
+                    onRemoved.accept(event.getLong(Constants.DATABASE_JOB_ID));
+                }
+            }
+
+            default -> logger.warn("Unknown device registry event: {}", event);
+        }
+    }
+
+    // Re-reads the devices matched by the query and replaces them in the registry.
+    // @param query The device query filtered by a single parameter.
+    // @param id The job id or credential profile id used as the query parameter.
+    // @param onAdded Called for every device that was read.
+    private void refresh(String query, Long id, Consumer<JsonObject> onAdded)
+    {
+        if (id == null)
+        {
+            return;
+        }
+
+        vertx.eventBus().<JsonObject>request(Constants.EVENTBUS_DATABASE_ADDRESS, new JsonObject().put(Constants.QUERY, query).put(Constants.PARAMS, new JsonArray().add(id)), reply ->
+        {
+            if (reply.succeeded())
+            {
+                var data = reply.result().body().getJsonArray(Constants.DATA);
+
+                if (data != null)
+                {
+                    data.forEach(entry ->
+                    {
+                        var device = (JsonObject) entry;
+
+                        put(devices, device);
+
+                        logger.info("Refreshed job {} in device registry", device.getLong(Constants.DATABASE_JOB_ID));
+
+                        onAdded.accept(device);
+                    });
+                }
+            }
+            else
+            {
+                logger.error("Device registry refresh failed for id {}: {}", id, reply.cause().getMessage());
+            }
+        });
+    }
+
+    private void put(Map<Long, JsonObject> target, JsonObject device)
+    {
+        device.put(Constants.TEMPLATE_VERSION, nextVersion++);
+
+        target.put(device.getLong(Constants.DATABASE_JOB_ID), device);
+    }
+
+    public boolean isLoaded()
+    {
+        return loaded;
+    }
+
+    public int size()
+    {
+        return devices.size();
+    }
+
+    public Collection<JsonObject> devices()
+    {
+        return devices.values();
+    }
+}
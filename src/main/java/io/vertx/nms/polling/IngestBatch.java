@@ -0,0 +1,8 @@
+package io.vertx.nms.polling;
+
+import java.util.List;
+
+// A batch of rows handed to the database verticle by reference.
+public record IngestBatch(List<PollRow> rows)
+{
+}
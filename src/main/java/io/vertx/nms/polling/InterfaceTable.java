@@ -0,0 +1,149 @@
+package io.vertx.nms.polling;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+// The interfaces array of a polling reply as a table: the column names once, the cells of all rows in one array.
+// Interfaces repeat the same keys, so a reply with 48 interfaces holds a handful of column names instead of 48 maps.
+// Interfaces missing a column leave its cell absent, which is kept apart from an explicit null.
+public final class InterfaceTable
+{
+    private static final Object ABSENT = new Object();
+
+    private static final int INITIAL_COLUMNS = 8;
+
+    private static final int INITIAL_ROWS = 16;
+
+    private String[] columns = new String[INITIAL_COLUMNS];
+
+    private int columnCount;
+
+    private Object[] cells = new Object[INITIAL_COLUMNS * INITIAL_ROWS];
+
+    private int rows;
+
+    // Starts the next interface, all of whose cells are absent until put.
+    public void startRow()
+    {
+        if ((rows + 1) * columns.length > cells.length)
+        {
+            cells = Arrays.copyOf(cells, cells.length * 2);
+        }
+
+        Arrays.fill(cells, rows * columns.length, (rows + 1) * columns.length, ABSENT);
+
+        rows++;
+    }
+
+    // Sets a cell of the current interface.
+    public void put(String column, Object value)
+    {
+        cells[(rows - 1) * columns.length + columnOf(column)] = value;
+    }
+
+    public int rows()
+    {
+        return rows;
+    }
+
+    public int columns()
+    {
+        return columnCount;
+    }
+
+    // Writes the table as the JSON array of interface objects it was read from.
+    public void writeJson(JsonGenerator generator) throws IOException
+    {
+        generator.writeStartArray();
+
+        for (var row = 0; row < rows; row++)
+        {
+            generator.writeStartObject();
+
+            for (var column = 0; column < columnCount; column++)
+            {
+                var value = cells[row * columns.length + column];
+
+                if (value != ABSENT)
+                {
+                    generator.writeFieldName(columns[column]);
+
+                    MetricSet.writeValue(generator, value);
+                }
+            }
+
+            generator.writeEndObject();
+        }
+
+        generator.writeEndArray();
+    }
+
+    public JsonArray toJson()
+    {
+        var array = new JsonArray();
+
+        for (var row = 0; row < rows; row++)
+        {
+            var entry = new JsonObject();
+
+            for (var column = 0; column < columnCount; column++)
+            {
+                var value = cells[row * columns.length + column];
+
+                if (value != ABSENT)
+                {
+                    entry.put(columns[column], value);
+                }
+            }
+
+            array.add(entry);
+        }
+
+        return array;
+    }
+
+    // @return The index of the column, added if it is new. Keys come canonicalized from the parser, so the identity
+    //         check usually hits before equals is needed.
+    private int columnOf(String column)
+    {
+        for (var i = 0; i < columnCount; i++)
+        {
+            if (columns[i] == column || columns[i].equals(column))
+            {
+                return i;
+            }
+        }
+
+        if (columnCount == columns.length)
+        {
+            widen();
+        }
+
+        columns[columnCount] = column;
+
+        return columnCount++;
+    }
+
+    // Doubles the row stride, moving the cells of every row to their new position.
+    private void widen()
+    {
+        var stride = columns.length;
+
+        var widened = new Object[Math.max(cells.length, rows * stride) * 2];
+
+        for (var row = 0; row < rows; row++)
+        {
+            System.arraycopy(cells, row * stride, widened, row * stride * 2, stride);
+
+            Arrays.fill(widened, row * stride * 2 + stride, (row + 1) * stride * 2, ABSENT);
+        }
+
+        cells = widened;
+
+        columns = Arrays.copyOf(columns, stride * 2);
+    }
+}
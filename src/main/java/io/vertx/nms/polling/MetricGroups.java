@@ -0,0 +1,150 @@
+package io.vertx.nms.polling;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.nms.util.Constants;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+// Decides which metric groups of a device are due on a poll and splits a polling response into one row per group.
+// The interfaces group follows the poll interval of the device, the system group (system.* inventory fields) is
+// only stored every few hours because it rarely changes. Groups are marked as bit flags so a poll carries its
+// due groups as one int.
+public class MetricGroups
+{
+    public static final int INTERFACES = 1;
+
+    public static final int SYSTEM = 1 << 1;
+
+    public static final int ALL = INTERFACES | SYSTEM;
+
+    private static final String INTERFACE_PREFIX = "interface.";
+
+    private static final class Device
+    {
+        private long interfacesStoredAt;
+
+        private long systemStoredAt;
+
+        private int pendingGroups = ALL;
+    }
+
+    private static final JsonArray[] NAMES = new JsonArray[ALL + 1];
+
+    static
+    {
+        for (var groups = 0; groups <= ALL; groups++)
+        {
+            NAMES[groups] = new JsonArray();
+
+            if ((groups & INTERFACES) != 0)
+            {
+                NAMES[groups].add(Constants.METRIC_GROUP_INTERFACES);
+            }
+
+            if ((groups & SYSTEM) != 0)
+            {
+                NAMES[groups].add(Constants.METRIC_GROUP_SYSTEM);
+            }
+        }
+    }
+
+    private final Map<Long, Device> devices = new HashMap<>();
+
+    private final long systemInterval;
+
+    public MetricGroups()
+    {
+        this.systemInterval = Constants.POLLING_SYSTEM_GROUP_INTERVAL * 1000;
+    }
+
+    // Works out the groups due on this poll and remembers them for the reply.
+    // A group is due once its interval has passed, less half a poll interval so that polls arriving slightly
+    // early do not push the group to the poll after.
+    // @param jobId The job id of the device.
+    // @param pollInterval The poll interval of the device in milliseconds.
+    // @param now The current time in milliseconds.
+    // @return The due groups as bit flags, always including interfaces.
+    public int due(long jobId, long pollInterval, long now)
+    {
+        var device = devices.computeIfAbsent(jobId, id -> new Device());
+
+        var groups = INTERFACES;
+
+        if (device.systemStoredAt == 0 || now - device.systemStoredAt >= Math.max(pollInterval, systemInterval) - pollInterval / 2)
+        {
+            groups |= SYSTEM;
+        }
+
+        device.pendingGroups = groups;
+
+        return groups;
+    }
+
+    // @return The groups requested by the latest poll of the device, all groups if it is unknown.
+    public int pending(long jobId)
+    {
+        var device = devices.get(jobId);
+
+        return device == null ? ALL : device.pendingGroups;
+    }
+
+    public void stored(long jobId, int groups, long now)
+    {
+        var device = devices.computeIfAbsent(jobId, id -> new Device());
+
+        if ((groups & INTERFACES) != 0)
+        {
+            device.interfacesStoredAt = now;
+        }
+
+        if ((groups & SYSTEM) != 0)
+        {
+            device.systemStoredAt = now;
+        }
+    }
+
+    // Forgets the device of a deleted job.
+    public void remove(long jobId)
+    {
+        devices.remove(jobId);
+    }
+
+    // @return The names of the groups, shared between calls and not to be modified.
+    public static JsonArray names(int groups)
+    {
+        return NAMES[groups & ALL];
+    }
+
+    // Splits a polling response into one row per requested group. The interfaces table and interface.* fields belong
+    // to the interfaces group, every other field to the system group. Groups that were not requested are dropped.
+    // The rows share the interfaces table of the reply; only the flat metrics are divided.
+    // @param reply The polling response of the device.
+    // @param groups The requested groups.
+    // @param polledAt The time the response was handled.
+    // @param handler Called once per requested group with data.
+    public static void split(PollReply reply, int groups, long polledAt, Consumer<PollRow> handler)
+    {
+        var interfaces = new MetricSet();
+
+        var system = new MetricSet();
+
+        var metrics = reply.metrics();
+
+        for (var i = 0; i < metrics.size(); i++)
+        {
+            (metrics.key(i).startsWith(INTERFACE_PREFIX) ? interfaces : system).put(metrics.key(i), metrics.value(i));
+        }
+
+        if ((groups & INTERFACES) != 0 && (reply.interfaces() != null || !interfaces.isEmpty()))
+        {
+            handler.accept(new PollRow(reply.jobId(), Constants.METRIC_GROUP_INTERFACES, polledAt, interfaces, reply.interfaces()));
+        }
+
+        if ((groups & SYSTEM) != 0 && !system.isEmpty())
+        {
+            handler.accept(new PollRow(reply.jobId(), Constants.METRIC_GROUP_SYSTEM, polledAt, system, null));
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package io.vertx.nms.polling;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import io.vertx.core.json.JsonObject;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+// Flat metrics of a device as parallel key and value arrays, in the order of the reply.
+// Values are String, Long, Double, Boolean or null; anything nested is kept as the plain Map or List Jackson read.
+public final class MetricSet
+{
+    private static final int INITIAL_CAPACITY = 8;
+
+    private String[] keys = new String[INITIAL_CAPACITY];
+
+    private Object[] values = new Object[INITIAL_CAPACITY];
+
+    private int size;
+
+    public void put(String key, Object value)
+    {
+        if (size == keys.length)
+        {
+            keys = Arrays.copyOf(keys, size * 2);
+
+            values = Arrays.copyOf(values, size * 2);
+        }
+
+        keys[size] = key;
+
+        values[size] = value;
+
+        size++;
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    public String key(int index)
+    {
+        return keys[index];
+    }
+
+    public Object value(int index)
+    {
+        return values[index];
+    }
+
+    // Writes the metrics as fields of the JSON object the generator is currently in.
+    public void writeFields(JsonGenerator generator) throws IOException
+    {
+        for (var i = 0; i < size; i++)
+        {
+            generator.writeFieldName(keys[i]);
+
+            writeValue(generator, values[i]);
+        }
+    }
+
+    public JsonObject toJson()
+    {
+        var json = new JsonObject();
+
+        for (var i = 0; i < size; i++)
+        {
+            json.put(keys[i], values[i]);
+        }
+
+        return json;
+    }
+
+    static void writeValue(JsonGenerator generator, Object value) throws IOException
+    {
+        if (value == null)
+        {
+            generator.writeNull();
+        }
+        else if (value instanceof String text)
+        {
+            generator.writeString(text);
+        }
+        else if (value instanceof Long number)
+        {
+            generator.writeNumber(number);
+        }
+        else if (value instanceof Double number)
+        {
+            generator.writeNumber(number);
+        }
+        else if (value instanceof Boolean flag)
+        {
+            generator.writeBoolean(flag);
+        }
+        else
+        {
+            generator.writeObject(value);
+        }
+    }
+}
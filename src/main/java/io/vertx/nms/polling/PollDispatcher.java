@@ -0,0 +1,228 @@
+package io.vertx.nms.polling;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.nms.util.Constants;
+import io.vertx.nms.util.Util;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Paces the devices handed over by the timing wheel to the processor shards with a token bucket.
+// The backlog holds at most one poll per job: a device that is due again while its previous poll still waits keeps
+// its place, so a fleet needing more than the configured rate falls behind without the backlog growing.
+public class PollDispatcher
+{
+    private static final Logger logger = LoggerFactory.getLogger(PollDispatcher.class);
+
+    private static final long RATE_WINDOW = 60_000;
+
+    private static final String CONFIGURED_RATE = "configured_rate";
+
+    private static final String PLANNED_RATE = "planned_rate";
+
+    private static final String ACHIEVED_RATE = "achieved_rate";
+
+    private static final String DISPATCHED = "dispatched";
+
+    private static final String BACKLOG = "backlog";
+
+    private static final String THROTTLED_TICKS = "throttled_ticks";
+
+    private static final String BACKLOG_BY_PRIORITY = "backlog_by_priority";
+
+    private static final String COALESCED = "coalesced";
+
+    private final Vertx vertx;
+
+    private final WeightedFairQueue backlog = new WeightedFairQueue();
+
+    // The device to dispatch for every job waiting in the backlog. A backlog entry whose job is missing here was
+    // removed after it was queued and is skipped.
+    private final Map<Long, JsonObject> queued = new HashMap<>();
+
+    private final double rate;
+
+    private double plannedRate;
+
+    private double tokens;
+
+    private long lastRefillTime = System.currentTimeMillis();
+
+    private long windowStartTime = System.currentTimeMillis();
+
+    private long windowDispatched;
+
+    private double achievedRate;
+
+    private long dispatched;
+
+    private long throttledTicks;
+
+    private long coalesced;
+
+    // @param vertx The Vert.x instance used to send paced batches.
+    // @param rate The maximum number of devices dispatched per second.
+    public PollDispatcher(Vertx vertx, double rate)
+    {
+        this.vertx = vertx;
+
+        this.rate = rate;
+
+        this.tokens = rate;
+    }
+
+    // Queues a device for dispatch on the next tick, unless a poll of the job is already waiting.
+    // @param device The device to poll.
+    public void enqueue(JsonObject device)
+    {
+        if (queued.putIfAbsent(device.getLong(Constants.DATABASE_JOB_ID), device) == null)
+        {
+            backlog.add(device);
+        }
+        else
+        {
+            coalesced++;
+        }
+    }
+
+    // Makes a poll of the job that is already waiting go out with the device as now read. The poll keeps its place.
+    // @param device The refreshed device.
+    public void replace(JsonObject device)
+    {
+        queued.replace(device.getLong(Constants.DATABASE_JOB_ID), device);
+    }
+
+    // Drops the waiting poll of a job, if any.
+    // @param jobId The job id of the device.
+    public void remove(long jobId)
+    {
+        queued.remove(jobId);
+    }
+
+    // Sets the dispatch rate the current fleet needs, i.e. the sum of 1 / poll interval over all devices.
+    // @param plannedRate The needed rate in devices per second.
+    public void setPlannedRate(double plannedRate)
+    {
+        this.plannedRate = plannedRate;
+    }
+
+    // Sends as many queued devices as the token bucket allows, in weighted fair order across priorities.
+    public void tick()
+    {
+        var now = System.currentTimeMillis();
+
+        updateAchievedRate(now);
+
+        tokens = Math.min(rate, tokens + rate * (now - lastRefillTime) / 1000.0);
+
+        lastRefillTime = now;
+
+        if (queued.isEmpty())
+        {
+            return;
+        }
+
+        var count = (int) Math.min(queued.size(), tokens);
+
+        if (count < queued.size())
+        {
+            throttledTicks++;
+        }
+
+        if (count > 0)
+        {
+            var batches = new JsonArray[Constants.POLLING_PROCESSOR_INSTANCES];
+
+            for (var i = 0; i < count; )
+            {
+                var entry = backlog.poll();
+
+                if (entry == null)
+                {
+                    break;
+                }
+
+                var device = queued.remove(entry.getLong(Constants.DATABASE_JOB_ID));
+
+                if (device == null)
+                {
+                    continue;
+                }
+
+                i++;
+
+                var shard = Util.shardOf(device.getLong(Constants.DATABASE_JOB_ID));
+
+                if (batches[shard] == null)
+                {
+                    batches[shard] = new JsonArray();
+                }
+
+                batches[shard].add(device);
+            }
+
+            tokens -= count;
+
+            dispatched += count;
+
+            windowDispatched += count;
+
+            for (var shard = 0; shard < batches.length; shard++)
+            {
+                if (batches[shard] != null)
+                {
+                    vertx.eventBus().send(Util.shardAddress(Constants.EVENTBUS_POLLING_BATCH_ADDRESS, shard), batches[shard]);
+                }
+            }
+        }
+    }
+
+    // Closes the rate window once it is over and logs the configured, planned and achieved dispatch rate.
+    private void updateAchievedRate(long now)
+    {
+        if (now - windowStartTime >= RATE_WINDOW)
+        {
+            achievedRate = windowDispatched * 1000.0 / (now - windowStartTime);
+
+            if (windowDispatched > 0 || !queued.isEmpty())
+            {
+                logger.info("Dispatch rate: configured {} /s, planned {} /s, achieved {} /s, backlog {}",
+                        rate, String.format("%.2f", plannedRate), String.format("%.2f", achievedRate), queued.size());
+            }
+
+            if (plannedRate > rate)
+            {
+                logger.warn("Fleet needs {} polls/s but dispatch is capped at {} /s. Devices will be polled late.", String.format("%.2f", plannedRate), rate);
+            }
+
+            windowStartTime = now;
+
+            windowDispatched = 0;
+        }
+    }
+
+    // Returns the configured rate cap, the rate the fleet needs and the rate achieved in the last window.
+    public JsonObject stats()
+    {
+        var backlogByPriority = new JsonObject();
+
+        for (var level = 0; level < backlog.levels(); level++)
+        {
+            backlogByPriority.put(Constants.PRIORITIES.get(level), backlog.size(level));
+        }
+
+        return new JsonObject()
+                .put(CONFIGURED_RATE, rate)
+                .put(PLANNED_RATE, plannedRate)
+                .put(ACHIEVED_RATE, achievedRate)
+                .put(DISPATCHED, dispatched)
+                .put(BACKLOG, queued.size())
+                .put(BACKLOG_BY_PRIORITY, backlogByPriority)
+                .put(THROTTLED_TICKS, throttledTicks)
+                .put(COALESCED, coalesced);
+    }
+}
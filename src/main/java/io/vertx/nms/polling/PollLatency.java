@@ -0,0 +1,189 @@
+package io.vertx.nms.polling;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.nms.util.Constants;
+import io.vertx.nms.util.LatencyHistogram;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// End-to-end latency of polls, split into the stages a poll passes through:
+// queue (enqueued by the processor until dispatched), dispatch (handed to the messenger until written to a plugin
+// worker), plugin (written until the reply was read off the socket), handoff (read until handled by the processor),
+// store (handled until the database acknowledged its rows) and total (enqueued until stored).
+// Every stage has a shard-wide histogram, the total also has one per plugin type. Devices keep compact running
+// figures of their total instead of a histogram each, so the per-device cost stays a few fields.
+public class PollLatency
+{
+    private static final String QUEUE = "queue";
+
+    private static final String DISPATCH = "dispatch";
+
+    private static final String PLUGIN = "plugin";
+
+    private static final String HANDOFF = "handoff";
+
+    private static final String STORE = "store";
+
+    private static final String TOTAL = "total";
+
+    private static final String STAGES = "stages";
+
+    private static final String PLUGIN_TYPES = "plugin_types";
+
+    private static final String DEVICES = "devices";
+
+    private static final String STALE_REPLIES = "stale_replies";
+
+    private static final String COUNT = "count";
+
+    private static final String MEAN = "mean";
+
+    private static final String MAX = "max";
+
+    private static final String LAST = "last";
+
+    private static final class Device
+    {
+        private final String pluginType;
+
+        private long queuedAt;
+
+        private boolean awaitingStore;
+
+        private long count;
+
+        private long sum;
+
+        private long max;
+
+        private long last;
+
+        private Device(String pluginType)
+        {
+            this.pluginType = pluginType;
+        }
+    }
+
+    private final LatencyHistogram queue = new LatencyHistogram();
+
+    private final LatencyHistogram dispatch = new LatencyHistogram();
+
+    private final LatencyHistogram plugin = new LatencyHistogram();
+
+    private final LatencyHistogram handoff = new LatencyHistogram();
+
+    private final LatencyHistogram store = new LatencyHistogram();
+
+    private final LatencyHistogram total = new LatencyHistogram();
+
+    private final Map<String, LatencyHistogram> pluginTypes = new HashMap<>();
+
+    private final Map<Long, Device> devices = new HashMap<>();
+
+    private long staleReplies;
+
+    // Records the timestamps of an answered poll up to its reply being handled.
+    // @param jobId The job the poll belongs to.
+    // @param pluginType The plugin type of the device.
+    // @param queuedAt The time the processor queued the poll.
+    // @param dispatchedAt The time the processor handed the poll to the messenger.
+    // @param sentAt The time the messenger wrote the poll to a worker, or 0 if unknown.
+    // @param receivedAt The time the messenger read the reply, or 0 if unknown.
+    // @param now The time the processor handled the reply.
+    public void onReply(long jobId, String pluginType, long queuedAt, long dispatchedAt, long sentAt, long receivedAt, long now)
+    {
+        queue.record(dispatchedAt - queuedAt);
+
+        if (sentAt > 0 && receivedAt > 0)
+        {
+            dispatch.record(sentAt - dispatchedAt);
+
+            plugin.record(receivedAt - sentAt);
+
+            handoff.record(now - receivedAt);
+        }
+
+        var device = devices.computeIfAbsent(jobId, id -> new Device(pluginType));
+
+        device.queuedAt = queuedAt;
+
+        device.awaitingStore = true;
+    }
+
+    // Records the database acknowledgement of a stored row. Only the first row of a reply completes its total.
+    // @param jobId The job the row belongs to.
+    // @param polledAt The time the processor handled the reply of the row.
+    // @param now The time the database acknowledged the row.
+    public void onStored(long jobId, long polledAt, long now)
+    {
+        store.record(now - polledAt);
+
+        var device = devices.get(jobId);
+
+        if (device == null || !device.awaitingStore)
+        {
+            return;
+        }
+
+        device.awaitingStore = false;
+
+        var elapsed = now - device.queuedAt;
+
+        total.record(elapsed);
+
+        pluginTypes.computeIfAbsent(device.pluginType, type -> new LatencyHistogram()).record(elapsed);
+
+        device.count++;
+
+        device.sum += elapsed;
+
+        device.max = Math.max(device.max, elapsed);
+
+        device.last = elapsed;
+    }
+
+    // Forgets the figures of a deleted job. Its samples stay in the stage and plugin type histograms.
+    public void remove(long jobId)
+    {
+        devices.remove(jobId);
+    }
+
+    // Counts a reply whose sequence id does not match the outstanding poll of its job, e.g. a late answer to a
+    // poll abandoned by the overlap policy.
+    public void onStaleReply()
+    {
+        staleReplies++;
+    }
+
+    // @return The stage and plugin type histograms as bucket counts, so shards can be merged, and the device figures.
+    public JsonObject stats()
+    {
+        var types = new JsonObject();
+
+        pluginTypes.forEach((type, histogram) -> types.put(type, histogram.toJson()));
+
+        var list = new JsonArray();
+
+        devices.forEach((jobId, device) -> list.add(new JsonObject()
+                .put(Constants.DATABASE_JOB_ID, jobId)
+                .put(Constants.PLUGIN_TYPE, device.pluginType)
+                .put(COUNT, device.count)
+                .put(MEAN, device.count == 0 ? 0 : device.sum / device.count)
+                .put(MAX, device.max)
+                .put(LAST, device.last)));
+
+        return new JsonObject()
+                .put(STALE_REPLIES, staleReplies)
+                .put(STAGES, new JsonObject()
+                        .put(QUEUE, queue.toJson())
+                        .put(DISPATCH, dispatch.toJson())
+                        .put(PLUGIN, plugin.toJson())
+                        .put(HANDOFF, handoff.toJson())
+                        .put(STORE, store.toJson())
+                        .put(TOTAL, total.toJson()))
+                .put(PLUGIN_TYPES, types)
+                .put(DEVICES, list);
+    }
+}
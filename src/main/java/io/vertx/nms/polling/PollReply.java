@@ -0,0 +1,87 @@
+package io.vertx.nms.polling;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.nms.util.Constants;
+
+import java.util.List;
+import java.util.Map;
+
+// A polling reply decoded into typed fields: the flat device metrics and the interfaces table.
+// Passed from the messenger to the processor shard by reference, it is not modified once sent.
+// @param interfaces The interfaces table, or null if the reply has none.
+// @param sentAt The time the messenger wrote the request, or 0 if unknown.
+// @param receivedAt The time the messenger read the reply, or 0 if unknown.
+public record PollReply(long jobId, String requestId, MetricSet metrics, InterfaceTable interfaces, long sentAt, long receivedAt)
+{
+    public PollReply stamped(long sentAt, long receivedAt)
+    {
+        return new PollReply(jobId, requestId, metrics, interfaces, sentAt, receivedAt);
+    }
+
+    // Builds the typed reply from a reply that was decoded into a JSON tree, e.g. one inside a batch envelope.
+    public static PollReply fromJson(JsonObject reply)
+    {
+        var metrics = new MetricSet();
+
+        InterfaceTable interfaces = null;
+
+        var data = reply.getJsonObject(Constants.DATA);
+
+        if (data != null)
+        {
+            for (var entry : data)
+            {
+                if (entry.getKey().equals(Constants.METRIC_GROUP_INTERFACES) && entry.getValue() instanceof JsonArray array)
+                {
+                    interfaces = new InterfaceTable();
+
+                    for (var row : array)
+                    {
+                        interfaces.startRow();
+
+                        if (row instanceof JsonObject fields)
+                        {
+                            for (var field : fields)
+                            {
+                                interfaces.put(field.getKey(), plain(field.getValue()));
+                            }
+                        }
+                    }
+                }
+                else
+                {
+                    metrics.put(entry.getKey(), plain(entry.getValue()));
+                }
+            }
+        }
+
+        return new PollReply(Long.parseLong(String.valueOf(reply.getValue(Constants.DATABASE_JOB_ID))), reply.getString(Constants.REQUEST_ID), metrics, interfaces, reply.getLong(Constants.SENT_AT, 0L), reply.getLong(Constants.RECEIVED_AT, 0L));
+    }
+
+    // Narrows numbers to Long or Double and unwraps nested JSON, the value types the streaming parser produces.
+    private static Object plain(Object value)
+    {
+        if (value instanceof Integer || value instanceof Short || value instanceof Byte)
+        {
+            return ((Number) value).longValue();
+        }
+
+        if (value instanceof Float number)
+        {
+            return number.doubleValue();
+        }
+
+        if (value instanceof JsonObject object)
+        {
+            return object.getMap();
+        }
+
+        if (value instanceof JsonArray array)
+        {
+            return array.getList();
+        }
+
+        return value instanceof Map || value instanceof List || value == null || value instanceof String || value instanceof Number || value instanceof Boolean ? value : String.valueOf(value);
+    }
+}
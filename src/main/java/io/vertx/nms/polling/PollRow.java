@@ -0,0 +1,42 @@
+package io.vertx.nms.polling;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import io.vertx.core.json.JsonObject;
+import io.vertx.nms.util.Constants;
+
+import java.io.IOException;
+
+// One provision_data row: the part of a polling reply that belongs to one metric group.
+// @param interfaces The interfaces table of the interfaces group, null for the system group.
+public record PollRow(long jobId, String metricGroup, long polledAt, MetricSet metrics, InterfaceTable interfaces)
+{
+    // Writes the data column as a JSON object straight from the typed fields.
+    public void writeData(JsonGenerator generator) throws IOException
+    {
+        generator.writeStartObject();
+
+        metrics.writeFields(generator);
+
+        if (interfaces != null)
+        {
+            generator.writeFieldName(Constants.METRIC_GROUP_INTERFACES);
+
+            interfaces.writeJson(generator);
+        }
+
+        generator.writeEndObject();
+    }
+
+    // @return The data column as a JSON tree, for the batch insert strategy which binds it as a JSONB parameter.
+    public JsonObject data()
+    {
+        var data = metrics.toJson();
+
+        if (interfaces != null)
+        {
+            data.put(Constants.METRIC_GROUP_INTERFACES, interfaces.toJson());
+        }
+
+        return data;
+    }
+}
@@ -1,17 +1,16 @@
 package io.vertx.nms.polling;
 import io.vertx.core.AbstractVerticle;
+import io.vertx.core.Future;
 import io.vertx.core.Promise;
-import io.vertx.core.eventbus.DeliveryOptions;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.nms.util.Constants;
+import io.vertx.nms.util.LocalCodec;
+import io.vertx.nms.util.PendingTracker;
+import io.vertx.nms.util.Util;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.time.ZoneId;
-import java.time.ZonedDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -20,84 +19,271 @@ public class PollingProcessor extends AbstractVerticle
 {
     private static final Logger logger = LoggerFactory.getLogger(PollingProcessor.class);
 
-    private static final int DATABASE_INSERT_BATCH_SIZE = 20;
+    private static final long BATCH_FLUSH_CHECK_INTERVAL = 1_000;
 
-    private static final long BATCH_FLUSH_INTERVAL = 20_000;
+    private static final long CHECK_TIMEOUT_MS = 1_000;
 
-    private static final long BATCH_FLUSH_CHECK_INTERVAL = 10_000;
+    private static final String IN_FLIGHT = "in_flight";
 
-    private static final long RESPONSE_TIMEOUT = 270_000;
+    private static final String MAX_IN_FLIGHT = "max_in_flight";
 
-    private static final long CHECK_TIMEOUT_MS = 30_000;
+    private static final String QUEUED = "queued";
 
-    private final List<JsonObject> batchSnmpData = new ArrayList<>();
+    private static final String INGEST = "ingest";
 
-    private final Map<Long, Long> pendingRequests = new HashMap<>();
+    private static final String CYCLES = "cycles";
 
-    private long lastFlushTime = System.currentTimeMillis();
+    private static final String LATENCY = "latency";
+
+    // Outstanding polls by job id, each holding the polled device with its queue time and sequence id.
+    private PendingTracker<JsonObject> pendingRequests;
+
+    private long nextSequence = 1;
+
+    private final PollLatency latency = new PollLatency();
+
+    // Device version of the request template the messenger holds for each job.
+    private final Map<Long, Long> templateVersions = new HashMap<>();
+
+    private final WeightedFairQueue dispatchQueue = new WeightedFairQueue();
+
+    private int maxInFlight;
+
+    private int highPriorityReserve;
 
     private final JsonObject requestJson = new JsonObject();
 
-    private final StringBuilder queryBuilder = new StringBuilder();
+    private AdaptiveBatcher batcher;
+
+    private final DeviceHealth health = new DeviceHealth();
+
+    private final CycleTracker cycles = new CycleTracker();
 
-    private final JsonArray params = new JsonArray();
+    private final MetricGroups metricGroups = new MetricGroups();
 
-    private final JsonObject dbRequest = new JsonObject();
+    private final Map<Long, JsonObject> delayedPolls = new HashMap<>();
 
+    private String overrunPolicy;
+
+    private int shard;
+
+    // Each instance owns one shard of the fleet, selected by the shard index in its deployment config.
+    // Batches and replies for the jobs of this shard arrive on the shard's own event bus addresses.
     @Override
     public void start(Promise<Void> startPromise)
     {
-        vertx.eventBus().<JsonArray>localConsumer(Constants.EVENTBUS_POLLING_BATCH_ADDRESS, message ->
+        shard = config().getInteger(Constants.SHARD, 0);
+
+        maxInFlight = Math.max(1, Constants.POLLING_MAX_IN_FLIGHT / Constants.POLLING_PROCESSOR_INSTANCES);
+
+        highPriorityReserve = (int) Math.min(maxInFlight - 1, Math.ceil(maxInFlight * Constants.POLLING_HIGH_PRIORITY_RESERVE));
+
+        overrunPolicy = Constants.POLLING_OVERRUN_POLICY;
+
+        if (!overrunPolicy.equals(Constants.OVERRUN_SKIP) && !overrunPolicy.equals(Constants.OVERRUN_OVERLAP) && !overrunPolicy.equals(Constants.OVERRUN_DELAY))
         {
-            logger.info("received batch of "+message.body().size());
+            logger.warn("Unknown overrun policy {}, using {}", overrunPolicy, Constants.OVERRUN_SKIP);
+
+            overrunPolicy = Constants.OVERRUN_SKIP;
+        }
 
-            clearPendingRequests();
+        pendingRequests = new PendingTracker<>(maxInFlight, CHECK_TIMEOUT_MS, System.currentTimeMillis());
+
+        batcher = new AdaptiveBatcher(this::storeSnmpDataBatch, this::drainDispatchQueue);
+
+        vertx.eventBus().<JsonArray>localConsumer(Util.shardAddress(Constants.EVENTBUS_POLLING_BATCH_ADDRESS, shard), message ->
+        {
+            logger.debug("received batch of {}", message.body().size());
 
             processDevices(message.body());
         });
 
-        vertx.eventBus().<JsonObject>localConsumer(Constants.EVENTBUS_POLLING_REPLY_ADDRESS, message ->
+        LocalCodec.register(vertx, PollReply.class);
+
+        LocalCodec.register(vertx, IngestBatch.class);
+
+        vertx.eventBus().<PollReply>localConsumer(Util.shardAddress(Constants.EVENTBUS_POLLING_REPLY_ADDRESS, shard), message ->
         {
             if(message.body() != null)
             {
-                addToBatch(message.body().getJsonObject(Constants.DATA), Long.parseLong(message.body().getString(Constants.DATABASE_JOB_ID)));
+                addToBatch(message.body());
             }
 
         });
 
+        vertx.eventBus().<JsonObject>localConsumer(Util.shardAddress(Constants.EVENTBUS_POLLING_FAILURE_ADDRESS, shard), message -> onPollFailed(message.body().getLong(Constants.DATABASE_JOB_ID), message.body().getString(Constants.ERROR)));
+
+        vertx.eventBus().<JsonObject>localConsumer(Util.shardAddress(Constants.EVENTBUS_POLLING_PIPELINE_STATS_ADDRESS, shard), message -> message.reply(new JsonObject()
+                .put(Constants.SHARD, shard)
+                .put(IN_FLIGHT, pendingRequests.size())
+                .put(MAX_IN_FLIGHT, maxInFlight)
+                .put(QUEUED, dispatchQueue.size())
+                .put(INGEST, batcher.stats())));
+
+        vertx.eventBus().<JsonObject>localConsumer(Util.shardAddress(Constants.EVENTBUS_POLLING_HEALTH_ADDRESS, shard), message -> message.reply(health.stats().put(Constants.SHARD, shard)));
+
+        vertx.eventBus().<JsonObject>localConsumer(Util.shardAddress(Constants.EVENTBUS_POLLING_CYCLES_ADDRESS, shard), message -> message.reply(new JsonObject()
+                .put(Constants.SHARD, shard)
+                .put(CYCLES, cycles.stats(System.currentTimeMillis()))));
+
+        vertx.eventBus().<JsonObject>localConsumer(Util.shardAddress(Constants.EVENTBUS_POLLING_LATENCY_ADDRESS, shard), message -> message.reply(new JsonObject()
+                .put(Constants.SHARD, shard)
+                .put(LATENCY, latency.stats())));
+
+        vertx.eventBus().<JsonObject>localConsumer(Constants.EVENTBUS_DEVICE_REGISTRY_ADDRESS, message ->
+        {
+            if (Constants.DELETE.equals(message.body().getString(Constants.OPERATION)) && message.body().getLong(Constants.DATABASE_JOB_ID) != null)
+            {
+                var jobId = message.body().getLong(Constants.DATABASE_JOB_ID);
+
+                templateVersions.remove(jobId);
+
+                health.remove(jobId);
+
+                metricGroups.remove(jobId);
+
+                latency.remove(jobId);
+            }
+        });
+
         vertx.setPeriodic(CHECK_TIMEOUT_MS, id -> checkPendingTimeouts());
 
-        vertx.setPeriodic(BATCH_FLUSH_CHECK_INTERVAL, id -> checkBatchTimeFlush());
+        vertx.setPeriodic(BATCH_FLUSH_CHECK_INTERVAL, id -> batcher.checkStaleness());
 
-        logger.info("Polling Worker started");
+        logger.info("Polling Worker started for shard {}", shard);
 
         startPromise.complete();
     }
 
-    // Processes the fetched provisioned devices.
-    // Extracts the Constants.DATA array from the response and iterates through each device.
-    // Sends each device's details to the ZMQ request handler.
-    // @param body The response object received from the database query, expected to be a JsonObject containing a Constants.DATA array.
+    // Queues the devices to poll, stamped with their queue time, and sends as many as the in-flight window allows.
+    // @param body The array of devices to poll.
     private void processDevices(JsonArray body)
     {
-        body.forEach(entry ->
+        var now = System.currentTimeMillis();
+
+        body.forEach(entry -> dispatchQueue.add(((JsonObject) entry).put(Constants.QUEUED_AT, now)));
+
+        drainDispatchQueue();
+    }
+
+    // Sends queued devices, in weighted fair order across priorities, to the ZMQ request handler while a credit is free.
+    // Nothing is sent while the insert queue is saturated; open breakers and outstanding polls are handled on the way,
+    // see shouldPoll and applyOverrunPolicy.
+    private void drainDispatchQueue()
+    {
+        while (!dispatchQueue.isEmpty() && pendingRequests.size() < maxInFlight && !batcher.isSaturated())
         {
-            var device = (JsonObject) entry;
+            // The last credits are reserved for the highest priority.
+            var device = pendingRequests.size() < maxInFlight - highPriorityReserve ? dispatchQueue.poll() : dispatchQueue.poll(0);
 
-            pendingRequests.put(device.getLong(Constants.DATABASE_JOB_ID), System.currentTimeMillis());
+            if (device == null)
+            {
+                return;
+            }
 
-            sendZmqRequest((JsonObject) entry);
-        });
+            var jobId = device.getLong(Constants.DATABASE_JOB_ID);
+
+            var now = System.currentTimeMillis();
+
+            if (pendingRequests.contains(jobId) && !applyOverrunPolicy(jobId, device, now))
+            {
+                continue;
+            }
+
+            if (!health.shouldPoll(jobId))
+            {
+                continue;
+            }
+
+            // The reply echoes the sequence id, so a late reply to an earlier poll of the job is told apart.
+            device.put(Constants.REQUEST_ID, nextSequence++);
+
+            pendingRequests.track(jobId, now, now + health.timeout(jobId), device);
+
+            health.onSent(jobId, now);
+
+            cycles.onDispatched(now);
+
+            sendZmqRequest(device, metricGroups.due(jobId, device.getLong(Constants.DATABASE_POLL_INTERVAL, (long) Constants.DEFAULT_POLL_INTERVAL) * 1000, now));
+        }
+    }
+
+    // Handles a poll that is due while the previous poll of the device is still outstanding.
+    // skip drops the new poll, overlap abandons the outstanding one and sends the new poll, delay holds the new poll
+    // back until the outstanding one is answered or times out. Only the latest delayed poll of a device is kept.
+    // @return true if the new poll should be sent now.
+    private boolean applyOverrunPolicy(long jobId, JsonObject device, long now)
+    {
+        logger.debug("Poll of jobId {} is due while the previous one is outstanding, policy {}", jobId, overrunPolicy);
+
+        switch (overrunPolicy)
+        {
+            case Constants.OVERRUN_OVERLAP ->
+            {
+                cycles.onOverrun(now, false);
+
+                cycles.onAbandoned(pendingRequests.complete(jobId), now);
+
+                health.onAbandoned(jobId);
+
+                return true;
+            }
+            case Constants.OVERRUN_DELAY ->
+            {
+                cycles.onOverrun(now, delayedPolls.put(jobId, device) != null);
+
+                return false;
+            }
+            default ->
+            {
+                cycles.onOverrun(now, true);
+
+                return false;
+            }
+        }
     }
 
-    // Constructs a request JSON with device details and credentials.
-    // Sends a polling request to the ZMQ service for the given device.
-    // On success, parses the SNMP response and adds it to the batch for further processing.
+    // Puts a poll held back by the delay policy at the front of the queue once the device has no poll outstanding.
+    private void releaseDelayedPoll(long jobId)
+    {
+        var device = delayedPolls.remove(jobId);
+
+        if (device != null)
+        {
+            dispatchQueue.addFirst(device);
+        }
+    }
+
+    // Sends a polling request to the ZMQ service for the given device, naming the metric groups that are due.
+    // The first request of a device version carries the device details and credentials and becomes the messenger's
+    // template for the job; later requests only carry the job id, sequence id, metric groups and version.
     // @param device The JSON object containing device details, including IP, credentials, and system type.
-    private void sendZmqRequest(JsonObject device)
+    // @param groups The due metric groups as MetricGroups bit flags.
+    private void sendZmqRequest(JsonObject device, int groups)
     {
         requestJson.clear();
 
+        var jobId = device.getLong(Constants.DATABASE_JOB_ID);
+
+        var version = device.getLong(Constants.TEMPLATE_VERSION);
+
+        if (version != null && version.equals(templateVersions.get(jobId)))
+        {
+            vertx.eventBus().send(Constants.EVENTBUS_ZMQ_ADDRESS, requestJson
+                    .put(Constants.REQUEST_TYPE, Constants.POLLING)
+                    .put(Constants.DATABASE_JOB_ID, jobId)
+                    .put(Constants.REQUEST_ID, device.getLong(Constants.REQUEST_ID))
+                    .put(Constants.METRIC_GROUPS, groups)
+                    .put(Constants.TEMPLATE_VERSION, version));
+
+            return;
+        }
+
+        if (version != null)
+        {
+            templateVersions.put(jobId, version);
+        }
+
         vertx.eventBus().send(Constants.EVENTBUS_ZMQ_ADDRESS, requestJson
                         .put(Constants.IP, device.getString(Constants.IP))
                         .put(Constants.COMMUNITY, device.getJsonObject(Constants.CREDENTIALS).getString(Constants.COMMUNITY))
@@ -106,120 +292,132 @@ public class PollingProcessor extends AbstractVerticle
                         .put(Constants.PORT, device.getLong(Constants.PORT))
                         .put(Constants.PLUGIN_TYPE, device.getString(Constants.SYSTEM_TYPE))
                         .put(Constants.DATABASE_JOB_ID, device.getLong(Constants.DATABASE_JOB_ID))
+                        .put(Constants.REQUEST_ID, device.getLong(Constants.REQUEST_ID))
+                        .put(Constants.METRIC_GROUPS, groups)
+                        .put(Constants.TEMPLATE_VERSION, version)
         );
     }
 
-    // Adds SNMP data to the batch for bulk insertion.
-    // If the batch size reaches the predefined limit, it triggers a flush operation.
-    // @param snmpData The JSON object containing SNMP response data for the device.
-    // @param jobId The ID of the job associated with the device.
-    private void addToBatch(JsonObject snmpData, long jobId)
+    // @return Whether the sequence id of a reply differs from that of the outstanding poll, a malformed id included.
+    private static boolean isStale(String requestId, long outstanding)
     {
-        pendingRequests.remove(jobId);
-
-        batchSnmpData.add(new JsonObject()
-                    .put(Constants.DATABASE_JOB_ID, jobId)
-                    .put(Constants.DATA, snmpData)
-                    .put(Constants.POLLED_AT, System.currentTimeMillis()));
-
-            if (batchSnmpData.size() >= DATABASE_INSERT_BATCH_SIZE)
-            {
-                flushBatchData();
-            }
-    }
-
-    // Checks if batch flush interval has passed and flushes if needed.
-    private void checkBatchTimeFlush()
-    {
-        if (!batchSnmpData.isEmpty() && (System.currentTimeMillis() - lastFlushTime >= BATCH_FLUSH_INTERVAL))
+        try
+        {
+            return Long.parseLong(requestId) != outstanding;
+        }
+        catch (NumberFormatException e)
         {
-            flushBatchData();
+            return true;
         }
     }
 
-    // Flushes batch data and stores it.
-    private void flushBatchData()
+    // Adds SNMP data to the adaptive batcher for bulk insertion, one row per requested metric group.
+    // A reply carrying a sequence id other than that of the outstanding poll of its job, or a malformed one, is stale and dropped.
+    // Replies without a sequence id, or arriving after their poll timed out, are stored as before.
+    // @param reply The reply with the job id, sequence id, messenger timestamps and the SNMP response data.
+    private void addToBatch(PollReply reply)
     {
-        logger.info("flushing batch {}", batchSnmpData.size());
+        var now = System.currentTimeMillis();
+
+        var jobId = reply.jobId();
+
+        var device = pendingRequests.ref(jobId);
 
-        if (!batchSnmpData.isEmpty())
+        var requestId = reply.requestId();
+
+        if (device != null && requestId != null && isStale(requestId, device.getLong(Constants.REQUEST_ID)))
         {
-            var batchCopy = new ArrayList<>(batchSnmpData);
+            logger.debug("Dropping stale reply {} for jobId {}, poll {} is outstanding", requestId, jobId, device.getLong(Constants.REQUEST_ID));
 
-            batchSnmpData.clear();
+            latency.onStaleReply();
 
-            lastFlushTime = System.currentTimeMillis();
+            return;
+        }
 
-            storeSnmpDataBatch(batchCopy);
+        var sentAt = pendingRequests.complete(jobId);
+
+        if (sentAt != PendingTracker.MISSING)
+        {
+            cycles.onAnswered(sentAt, now);
+
+            latency.onReply(jobId, device.getString(Constants.SYSTEM_TYPE), device.getLong(Constants.QUEUED_AT, sentAt), sentAt, reply.sentAt(), reply.receivedAt(), now);
         }
+
+        health.onReply(jobId, now);
+
+        releaseDelayedPoll(jobId);
+
+        var groups = metricGroups.pending(jobId);
+
+        MetricGroups.split(reply, groups, now, batcher::add);
+
+        metricGroups.stored(jobId, groups, now);
+
+        drainDispatchQueue();
     }
 
-    // Stores SNMP data in batch.
-    // @param snmpDataList List of JSON objects containing SNMP data to be stored.
-    private void storeSnmpDataBatch(List<JsonObject> snmpDataList)
+    // Releases a poll the messenger could not send, because no plugin worker is alive or its send queue is full.
+    // The device is not blamed; a breaker probe that fails this way is let through again next cycle, see onAbandoned.
+    // @param jobId The ID of the job whose poll failed.
+    // @param reason Why the messenger failed the poll.
+    private void onPollFailed(long jobId, String reason)
     {
-        if (!snmpDataList.isEmpty())
+        var sentAt = pendingRequests.complete(jobId);
+
+        if (sentAt == PendingTracker.MISSING)
         {
-            logger.info("Storing {} SNMP records in batch...", snmpDataList.size());
+            return;
+        }
 
-            queryBuilder.setLength(0);
+        logger.warn("Poll of jobId {} failed: {}", jobId, reason);
 
-            params.clear();
+        // The next poll sends the full request again, which restores a template the messenger is missing.
+        templateVersions.remove(jobId);
 
-            dbRequest.clear();
+        cycles.onAbandoned(sentAt, System.currentTimeMillis());
 
-            queryBuilder.append("insert into provision_data (job_id, data, polled_at) values ");
+        health.onAbandoned(jobId);
 
-            var index = 1;
+        releaseDelayedPoll(jobId);
 
-            for (var data : snmpDataList)
-            {
-                queryBuilder.append("($").append(index++).append(", $").append(index++).append(", $").append(index++).append("),");
+        drainDispatchQueue();
+    }
 
-                params.add(data.getLong(Constants.DATABASE_JOB_ID))
-                        .add(data.getJsonObject(Constants.DATA))
-                        .add(data.getLong(Constants.POLLED_AT));
-            }
+    // Stores SNMP data in batch through the database ingest address.
+    // The rows are handed to the database verticle by reference, without converting them to JSON.
+    // @param snmpDataList List of rows containing SNMP data to be stored.
+    // @return Future completed when the database has acknowledged the batch. A failure is logged by the batcher.
+    private Future<?> storeSnmpDataBatch(List<PollRow> snmpDataList)
+    {
+        logger.debug("Storing {} SNMP records in batch...", snmpDataList.size());
 
-            queryBuilder.setLength(queryBuilder.length() - 1);
+        return vertx.eventBus().<JsonObject>request(Constants.EVENTBUS_DATABASE_INGEST_ADDRESS, new IngestBatch(snmpDataList))
+                .onSuccess(ack ->
+                {
+                    var now = System.currentTimeMillis();
 
-            vertx.eventBus().send(Constants.EVENTBUS_DATABASE_ADDRESS, dbRequest.put(Constants.QUERY, queryBuilder.toString()).put(Constants.PARAMS, params));
-        }
+                    snmpDataList.forEach(row -> latency.onStored(row.jobId(), row.polledAt(), now));
+                });
     }
 
     // Checks for pending requests that have exceeded the response timeout.
-    // Logs error and removes the timed-out requests from the pending list.
+    // Logs error, removes the timed-out requests from the pending list, records the failure and reuses their credits.
+    // Only the wheel slots due since the previous check are visited, so a timeout is noticed within a second.
     private void checkPendingTimeouts()
     {
         var now = System.currentTimeMillis();
 
-        pendingRequests.entrySet().removeIf(entry -> {
+        pendingRequests.expire(now, (jobId, sentAt, ignored) ->
+        {
+            logger.error("Polling response timeout for jobId {}", jobId);
 
-            if (now - entry.getValue() > RESPONSE_TIMEOUT)
-            {
-                logger.error("Polling response timeout for jobId {}", entry.getKey());
+            health.onTimeout(jobId);
 
-                return true;
-            }
-            return false;
-        });
-    }
-
-    // Logs all pending requests as errors and clears the pending requests map.
-    // This is called when a new batch starts to reset old pending requests.
-    private void clearPendingRequests()
-    {
-        if (!pendingRequests.isEmpty())
-        {
-            for (Map.Entry<Long, Long> entry : pendingRequests.entrySet())
-            {
-                var jobId = entry.getKey();
+            cycles.onTimedOut(sentAt, now);
 
-                long sentTime = entry.getValue();
+            releaseDelayedPoll(jobId);
+        });
 
-                logger.error("pending request detected. jobId={}, sentAt={}", jobId, sentTime);
-            }
-            pendingRequests.clear();
-        }
+        drainDispatchQueue();
     }
-}
\ No newline at end of file
+}
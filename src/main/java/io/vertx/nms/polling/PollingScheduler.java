@@ -2,94 +2,164 @@ package io.vertx.nms.polling;
 
 import io.vertx.core.AbstractVerticle;
 import io.vertx.core.Promise;
-import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.nms.util.Constants;
+import io.vertx.nms.util.Util;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.HashMap;
+import java.util.Map;
+
 public class PollingScheduler extends AbstractVerticle
 {
     private static final Logger logger = LoggerFactory.getLogger(PollingScheduler.class);
 
-    private static final int FETCH_BATCH_SIZE = 1000;
+    private static final long DISPATCH_TICK = 1_000;
+
+    private static final long RELOAD_RETRY_INTERVAL = 30_000;
 
-    private static final long SCHEDULER_INTERVAL = 300_000;
+    private DeviceRegistry registry;
 
-    private static final String FETCH_BATCH_QUERY = "SELECT p.id AS job_id, p.ip, p.port, c.system_type, c.credentials " +
-            "FROM provisioning_jobs p JOIN credential_profile c ON p.credential_profile_id = c.id " +
-            "where p.deleted = FALSE "+
-            "ORDER BY p.id LIMIT $1 OFFSET $2";
+    private PollDispatcher dispatcher;
 
-    private int currentOffset = 0;
+    private TimingWheel<JsonObject> wheel;
 
-    private final JsonObject queryRequest = new JsonObject();
+    private final Map<Long, TimingWheel.Entry<JsonObject>> schedule = new HashMap<>();
 
-    private final JsonArray queryParams = new JsonArray();
+    private double plannedRate;
 
     @Override
     public void start(Promise<Void> startPromise)
     {
         logger.info("Scheduler started");
 
-        vertx.setPeriodic(SCHEDULER_INTERVAL, id ->
+        registry = new DeviceRegistry(vertx);
+
+        dispatcher = new PollDispatcher(vertx, Constants.POLLING_DISPATCH_RATE);
+
+        wheel = new TimingWheel<>(DISPATCH_TICK, System.currentTimeMillis());
+
+        vertx.eventBus().<JsonObject>localConsumer(Constants.EVENTBUS_DEVICE_REGISTRY_ADDRESS, message -> registry.apply(message.body(), this::reschedule, this::unschedule));
+
+        vertx.eventBus().<JsonObject>localConsumer(Constants.EVENTBUS_POLLING_DISPATCH_STATS_ADDRESS, message -> message.reply(dispatcher.stats().put(Constants.SCHEDULED, wheel.size())));
+
+        vertx.setPeriodic(DISPATCH_TICK, id ->
         {
-            fetchAllBatches();
+            wheel.advance(System.currentTimeMillis(), this::poll);
 
+            dispatcher.tick();
         });
 
-        startPromise.complete();
-    }
-
-    // Resets the offset and initiates fetching of data in batches.
-    // Ensures batch retrieval starts from the beginning.
-    private void fetchAllBatches()
-    {
-        currentOffset = 0;
+        loadRegistry();
 
-        fetchBatch();
+        startPromise.complete();
     }
 
-    // Fetches a batch of provisioning jobs from the database using pagination.
-    // Sends the fetched batch to the polling event bus and continues fetching until all data is processed.
-    private void fetchBatch()
+    // Loads the device registry and schedules every device on the timing wheel.
+    // Retries periodically until the load succeeds. Change events received during the load are applied once it is done,
+    // through reschedule and unschedule, so a device provisioned meanwhile is still put on the wheel.
+    private void loadRegistry()
     {
-        queryParams.clear();
-
-        queryRequest.clear();
-
-        vertx.eventBus().<JsonObject>request(Constants.EVENTBUS_DATABASE_ADDRESS, queryRequest.put(Constants.QUERY, FETCH_BATCH_QUERY).put(Constants.PARAMS, queryParams.add(FETCH_BATCH_SIZE).add(currentOffset)), reply ->
+        registry.load().onComplete(loadResult ->
         {
-            if (reply.succeeded())
+            if (loadResult.succeeded())
             {
-                var data = reply.result().body().getJsonArray(Constants.DATA);
-
-                if (data != null && !data.isEmpty())
-                {
-                    logger.info("Scheduling batch of {} devices (Offset: {})", data.size(), currentOffset);
-
-                    vertx.eventBus().send(Constants.EVENTBUS_POLLING_BATCH_ADDRESS, data);
-
-                    if (data.size() < FETCH_BATCH_SIZE)
-                    {
-                        logger.info("Last batch fetched (Size: {}). Stopping further fetches.", data.size());
-                    }
-                    else
-                    {
-                        currentOffset += FETCH_BATCH_SIZE;
-
-                        fetchBatch();
-                    }
-                }
-                else
-                {
-                    logger.info("All batches processed. Resetting offset.");
-                }
+                var now = System.currentTimeMillis();
+
+                registry.devices().forEach(device -> scheduleAt(device, now + Math.floorMod(Util.hash(device.getLong(Constants.DATABASE_JOB_ID)), interval(device))));
+
+                logger.info("Scheduled {} devices on the timing wheel, fleet needs {} polls/s", schedule.size(), String.format("%.2f", plannedRate));
             }
             else
             {
-                logger.error("Batch fetch failed: {}", reply.cause().getMessage());
+                vertx.setTimer(RELOAD_RETRY_INTERVAL, id -> loadRegistry());
             }
         });
     }
+
+    // Hands an expired device to the dispatcher and schedules its next poll one interval after the previous deadline.
+    // @param entry The expired wheel entry of the device.
+    private void poll(TimingWheel.Entry<JsonObject> entry)
+    {
+        dispatcher.enqueue(entry.value());
+
+        wheel.schedule(entry, Math.max(entry.deadline() + interval(entry.value()), System.currentTimeMillis() + DISPATCH_TICK));
+    }
+
+    // Schedules a new device to be polled on the next tick. A device already scheduled, e.g. one refreshed by a
+    // credential profile update, keeps its deadline so the update does not poll every job of the profile at once;
+    // if its poll interval changed, it is polled one new interval from now at the latest.
+    // @param device The device read from the registry.
+    private void reschedule(JsonObject device)
+    {
+        var now = System.currentTimeMillis();
+
+        var entry = schedule.get(device.getLong(Constants.DATABASE_JOB_ID));
+
+        if (entry == null)
+        {
+            scheduleAt(device, now);
+        }
+        else if (interval(entry.value()) == interval(device))
+        {
+            scheduleAt(device, entry.deadline());
+        }
+        else
+        {
+            scheduleAt(device, Math.min(entry.deadline(), now + interval(device)));
+        }
+
+        // A poll already waiting for dispatch goes out with the device as now read.
+        dispatcher.replace(device);
+    }
+
+    // Schedules the device at the given time, replacing any existing schedule of the same job.
+    // @param device The device read from the registry.
+    // @param deadline The time of the next poll in milliseconds.
+    private void scheduleAt(JsonObject device, long deadline)
+    {
+        cancel(device.getLong(Constants.DATABASE_JOB_ID));
+
+        var entry = new TimingWheel.Entry<>(device);
+
+        schedule.put(device.getLong(Constants.DATABASE_JOB_ID), entry);
+
+        wheel.schedule(entry, deadline);
+
+        plannedRate += 1000.0 / interval(device);
+
+        dispatcher.setPlannedRate(plannedRate);
+    }
+
+    // Removes a deleted device from the timing wheel and drops its poll if one is waiting for dispatch.
+    // @param jobId The job id of the device.
+    private void unschedule(Long jobId)
+    {
+        cancel(jobId);
+
+        dispatcher.remove(jobId);
+    }
+
+    // Removes the device from the timing wheel.
+    // @param jobId The job id of the device.
+    private void cancel(Long jobId)
+    {
+        var entry = schedule.remove(jobId);
+
+        if (entry != null)
+        {
+            wheel.cancel(entry);
+
+            plannedRate = Math.max(0, plannedRate - 1000.0 / interval(entry.value()));
+
+            dispatcher.setPlannedRate(plannedRate);
+        }
+    }
+
+    // Returns the poll interval of the device in milliseconds.
+    private long interval(JsonObject device)
+    {
+        return device.getLong(Constants.DATABASE_POLL_INTERVAL, (long) Constants.DEFAULT_POLL_INTERVAL) * 1000;
+    }
 }
@@ -0,0 +1,235 @@
+package io.vertx.nms.polling;
+
+import java.util.function.Consumer;
+
+// Hierarchical timing wheel in the style of the classic cascading kernel timer wheel.
+// Level 0 has one slot per tick, every higher level has slots 64 times wider than the level below.
+// Scheduling and cancelling are O(1); entries are moved down one level when the wheel reaches their slot.
+// Entries are allocated once per owner and reused across reschedules, so steady state scheduling does not allocate.
+public class TimingWheel<T>
+{
+    private static final int SLOT_BITS = 6;
+
+    private static final int SLOTS = 1 << SLOT_BITS;
+
+    private static final int SLOT_MASK = SLOTS - 1;
+
+    private static final int LEVELS = 4;
+
+    private static final long MAX_DELTA = (1L << (SLOT_BITS * LEVELS)) - 1;
+
+    public static final class Entry<T>
+    {
+        private final T value;
+
+        private long deadline;
+
+        private int level = -1;
+
+        private int slot;
+
+        private Entry<T> previous;
+
+        private Entry<T> next;
+
+        public Entry(T value)
+        {
+            this.value = value;
+        }
+
+        public T value()
+        {
+            return value;
+        }
+
+        public long deadline()
+        {
+            return deadline;
+        }
+
+        public boolean isScheduled()
+        {
+            return level >= 0;
+        }
+    }
+
+    private final long tick;
+
+    private final Entry<T>[][] wheels;
+
+    private long nextTick;
+
+    private int size;
+
+    // @param tick The duration of one level 0 slot in milliseconds.
+    // @param now The current time in milliseconds.
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public TimingWheel(long tick, long now)
+    {
+        this.tick = tick;
+
+        this.nextTick = now / tick;
+
+        this.wheels = new Entry[LEVELS][SLOTS];
+    }
+
+    // Schedules the entry to expire at the given deadline, replacing any previous schedule of the entry.
+    // Deadlines in the past expire on the next tick. Deadlines beyond the wheel range are clamped to the range.
+    // @param entry The entry to schedule.
+    // @param deadline The expiry time in milliseconds.
+    public void schedule(Entry<T> entry, long deadline)
+    {
+        cancel(entry);
+
+        entry.deadline = deadline;
+
+        place(entry);
+
+        size++;
+    }
+
+    // Removes the entry from the wheel if it is scheduled.
+    // @param entry The entry to cancel.
+    public void cancel(Entry<T> entry)
+    {
+        if (entry.isScheduled())
+        {
+            unlink(entry);
+
+            size--;
+        }
+    }
+
+    // Advances the wheel up to the given time and hands every expired entry to the handler.
+    // The handler may reschedule the entry it receives.
+    // @param now The current time in milliseconds.
+    // @param handler Called once for every expired entry.
+    public void advance(long now, Consumer<Entry<T>> handler)
+    {
+        var nowTick = now / tick;
+
+        while (nextTick <= nowTick)
+        {
+            var index = (int) (nextTick & SLOT_MASK);
+
+            for (var level = 1; level < LEVELS && index == 0; level++)
+            {
+                index = (int) ((nextTick >>> (SLOT_BITS * level)) & SLOT_MASK);
+
+                cascade(level, index);
+            }
+
+            var entry = wheels[0][(int) (nextTick & SLOT_MASK)];
+
+            wheels[0][(int) (nextTick & SLOT_MASK)] = null;
+
+            nextTick++;
+
+            while (entry != null)
+            {
+                var next = entry.next;
+
+                entry.previous = null;
+
+                entry.next = null;
+
+                if (entry.deadline / tick >= nextTick)
+                {
+                    // Deadline was clamped to the wheel range, keep waiting.
+                    place(entry);
+                }
+                else
+                {
+                    entry.level = -1;
+
+                    size--;
+
+                    handler.accept(entry);
+                }
+
+                entry = next;
+            }
+        }
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    // Re-places every entry of a higher level slot, which moves it to a lower level.
+    private void cascade(int level, int index)
+    {
+        var entry = wheels[level][index];
+
+        wheels[level][index] = null;
+
+        while (entry != null)
+        {
+            var next = entry.next;
+
+            entry.previous = null;
+
+            entry.next = null;
+
+            place(entry);
+
+            entry = next;
+        }
+    }
+
+    // Links the entry into the slot matching its deadline relative to the next tick.
+    private void place(Entry<T> entry)
+    {
+        var deadlineTick = Math.max(entry.deadline / tick, nextTick);
+
+        var delta = Math.min(deadlineTick - nextTick, MAX_DELTA);
+
+        deadlineTick = nextTick + delta;
+
+        var level = 0;
+
+        while (level < LEVELS - 1 && delta >= (1L << (SLOT_BITS * (level + 1))))
+        {
+            level++;
+        }
+
+        var slot = (int) ((deadlineTick >>> (SLOT_BITS * level)) & SLOT_MASK);
+
+        entry.level = level;
+
+        entry.slot = slot;
+
+        entry.next = wheels[level][slot];
+
+        if (entry.next != null)
+        {
+            entry.next.previous = entry;
+        }
+
+        wheels[level][slot] = entry;
+    }
+
+    private void unlink(Entry<T> entry)
+    {
+        if (entry.previous != null)
+        {
+            entry.previous.next = entry.next;
+        }
+        else
+        {
+            wheels[entry.level][entry.slot] = entry.next;
+        }
+
+        if (entry.next != null)
+        {
+            entry.next.previous = entry.previous;
+        }
+
+        entry.level = -1;
+
+        entry.previous = null;
+
+        entry.next = null;
+    }
+}
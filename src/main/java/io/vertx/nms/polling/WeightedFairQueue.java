@@ -0,0 +1,120 @@
+package io.vertx.nms.polling;
+
+import io.vertx.core.json.JsonObject;
+import io.vertx.nms.util.Constants;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+// Queue of devices with one FIFO level per priority, drained by weighted round robin.
+// In every round each non-empty level is served up to its weight, highest priority first, so while all levels are
+// backlogged each gets a share of the sends proportional to its weight and no level is starved.
+// Levels that are empty give up their share to the others.
+public class WeightedFairQueue
+{
+    private final ArrayDeque<JsonObject>[] levels;
+
+    private final int[] weights;
+
+    private final int[] credits;
+
+    private int size;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public WeightedFairQueue()
+    {
+        weights = parseWeights(Constants.POLLING_PRIORITY_WEIGHTS);
+
+        credits = weights.clone();
+
+        levels = new ArrayDeque[weights.length];
+
+        for (var level = 0; level < levels.length; level++)
+        {
+            levels[level] = new ArrayDeque<>();
+        }
+    }
+
+    public void add(JsonObject device)
+    {
+        levels[levelOf(device)].add(device);
+
+        size++;
+    }
+
+    // Puts the device in front of its level, e.g. a poll that was held back and is due again.
+    public void addFirst(JsonObject device)
+    {
+        levels[levelOf(device)].addFirst(device);
+
+        size++;
+    }
+
+    public JsonObject poll()
+    {
+        return poll(levels.length - 1);
+    }
+
+    // @param lowestLevel The lowest priority level that may be served.
+    // @return The next device by weighted round robin among the allowed levels, or null if they are empty.
+    public JsonObject poll(int lowestLevel)
+    {
+        for (var round = 0; round < 2; round++)
+        {
+            for (var level = 0; level <= lowestLevel; level++)
+            {
+                if (credits[level] > 0 && !levels[level].isEmpty())
+                {
+                    credits[level]--;
+
+                    size--;
+
+                    return levels[level].poll();
+                }
+            }
+
+            System.arraycopy(weights, 0, credits, 0, weights.length);
+        }
+
+        return null;
+    }
+
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public int size(int level)
+    {
+        return levels[level].size();
+    }
+
+    public int levels()
+    {
+        return levels.length;
+    }
+
+    private int levelOf(JsonObject device)
+    {
+        var priority = device.getInteger(Constants.DATABASE_PRIORITY, Constants.DEFAULT_PRIORITY);
+
+        return Math.max(0, Math.min(levels.length - 1, priority));
+    }
+
+    private static int[] parseWeights(String weights)
+    {
+        var parsed = Arrays.stream(weights.split(",")).mapToInt(weight -> Math.max(1, Integer.parseInt(weight.trim()))).toArray();
+
+        if (parsed.length != Constants.PRIORITIES.size())
+        {
+            throw new IllegalArgumentException("Expected " + Constants.PRIORITIES.size() + " priority weights but got " + weights);
+        }
+
+        return parsed;
+    }
+}
@@ -1,5 +1,6 @@
 package io.vertx.nms.util;
 
+import java.util.List;
 import java.util.Set;
 
 public class Constants
@@ -18,6 +19,40 @@ public class Constants
 
     public static final String ZMQ_PULL_ADDRESS = "tcp://localhost:5556";
 
+    public static final int PLUGIN_WORKERS = Integer.getInteger("nms.plugin.workers", 1);
+
+    public static final long PLUGIN_RESTART_DELAY = Long.getLong("nms.plugin.restart.delay", 1_000);
+
+    public static final long PLUGIN_MAX_RESTART_DELAY = Long.getLong("nms.plugin.restart.delay.max", 60_000);
+
+    public static final long PLUGIN_HEARTBEAT_INTERVAL = Long.getLong("nms.plugin.heartbeat.interval", 5_000);
+
+    public static final long PLUGIN_HEARTBEAT_TIMEOUT = Long.getLong("nms.plugin.heartbeat.timeout", 30_000);
+
+    public static final String PLUGIN_HEALTH_CHECK = "health_check";
+
+    public static final String PLUGIN_HEALTH_OK = "ok";
+
+    public static final int ZMQ_SEND_HWM = Integer.getInteger("nms.zmq.send.hwm", 200);
+
+    public static final int ZMQ_QUEUE_CAPACITY = Integer.getInteger("nms.zmq.queue.capacity", 10_000);
+
+    public static final int ZMQ_BATCH_SIZE = Integer.getInteger("nms.zmq.batch.size", 1);
+
+    public static final long ZMQ_BATCH_LINGER = Long.getLong("nms.zmq.batch.linger", 20);
+
+    public static final String ZMQ_CODEC = System.getProperty("nms.zmq.codec", "auto");
+
+    public static final String ZMQ_RECEIVE_THREAD = "thread";
+
+    public static final String ZMQ_RECEIVE_TIMER = "timer";
+
+    public static final String ZMQ_RECEIVE_MODE = System.getProperty("nms.zmq.receive.mode", ZMQ_RECEIVE_THREAD);
+
+    public static final String ZMQ_RECORD_FILE = System.getProperty("nms.zmq.record.file", "");
+
+    public static final long ZMQ_RECORD_MAX_BYTES = Long.getLong("nms.zmq.record.max.bytes", 1L << 30);
+
 
     public static final String DATABASE_TABLE_DISCOVERY_PROFILE = "discovery_profiles";
 
@@ -39,6 +74,18 @@ public class Constants
 
     public static final String DATABASE_JOB_ID = "job_id";
 
+    public static final String DATABASE_POLL_INTERVAL = "poll_interval";
+
+    public static final String DATABASE_PRIORITY = "priority";
+
+    public static final String DATABASE_METRIC_GROUP = "metric_group";
+
+    public static final String METRIC_GROUPS = "metricGroups";
+
+    public static final String METRIC_GROUP_INTERFACES = "interfaces";
+
+    public static final String METRIC_GROUP_SYSTEM = "system";
+
 
     public static final String EVENTBUS_DATABASE_ADDRESS = "database.query.execute";
 
@@ -48,6 +95,102 @@ public class Constants
 
     public static final String EVENTBUS_POLLING_REPLY_ADDRESS = "polling.reply";
 
+    public static final String EVENTBUS_DATABASE_INGEST_ADDRESS = "database.ingest";
+
+    public static final String EVENTBUS_DATABASE_INGEST_STATS_ADDRESS = "database.ingest.stats";
+
+    public static final String EVENTBUS_POLLING_PIPELINE_STATS_ADDRESS = "polling.pipeline.stats";
+
+    public static final String EVENTBUS_ZMQ_STATS_ADDRESS = "zmq.stats";
+
+    public static final String EVENTBUS_PLUGIN_WORKER_ADDRESS = "plugin.worker";
+
+    public static final String EVENTBUS_PLUGIN_HEARTBEAT_ADDRESS = "plugin.heartbeat";
+
+    public static final String EVENTBUS_POLLING_FAILURE_ADDRESS = "polling.failure";
+
+    public static final String WORKER = "worker";
+
+    public static final String ALIVE = "alive";
+
+    public static final String LAST_HEARTBEAT = "last_heartbeat";
+
+    public static final String WORKERS = "workers";
+
+    public static final String EVENTBUS_DEVICE_REGISTRY_ADDRESS = "polling.registry.change";
+
+    public static final String EVENTBUS_POLLING_DISPATCH_STATS_ADDRESS = "polling.dispatch.stats";
+
+    public static final String EVENTBUS_POLLING_HEALTH_ADDRESS = "polling.health";
+
+    public static final String EVENTBUS_POLLING_CYCLES_ADDRESS = "polling.cycles";
+
+    public static final String EVENTBUS_POLLING_LATENCY_ADDRESS = "polling.latency";
+
+    public static final String REQUEST_ID = "requestId";
+
+    public static final String QUEUED_AT = "queuedAt";
+
+    public static final String SENT_AT = "sentAt";
+
+    public static final String RECEIVED_AT = "receivedAt";
+
+    public static final String REQUEST_TIMESTAMP = "timestamp";
+
+    public static final String TEMPLATE_VERSION = "templateVersion";
+
+
+    public static final int DEFAULT_POLL_INTERVAL = 300;
+
+    public static final int MIN_POLL_INTERVAL = 10;
+
+    public static final int MAX_POLL_INTERVAL = 86_400;
+
+    // Priority levels by name, the index is the stored level and 0 is served first.
+    public static final List<String> PRIORITIES = List.of("high", "normal", "low");
+
+    public static final int DEFAULT_PRIORITY = 1;
+
+    public static final String POLLING_PRIORITY_WEIGHTS = System.getProperty("nms.polling.priority.weights", "8,4,1");
+
+    public static final long POLLING_SYSTEM_GROUP_INTERVAL = Long.getLong("nms.polling.group.system.interval", 21_600);
+
+    public static final double POLLING_HIGH_PRIORITY_RESERVE = Double.parseDouble(System.getProperty("nms.polling.priority.reserve", "0.1"));
+
+    public static final double POLLING_DISPATCH_RATE = Double.parseDouble(System.getProperty("nms.polling.dispatch.rate", "500"));
+
+    public static final String INGEST_STRATEGY = System.getProperty("nms.ingest.strategy", "copy");
+
+    public static final int INGEST_MIN_BATCH_SIZE = Integer.getInteger("nms.ingest.batch.min", 20);
+
+    public static final int INGEST_MAX_BATCH_SIZE = Integer.getInteger("nms.ingest.batch.max", 2000);
+
+    public static final long INGEST_MAX_STALENESS = Long.getLong("nms.ingest.staleness", 5_000);
+
+    public static final int INGEST_MAX_IN_FLIGHT_BATCHES = Integer.getInteger("nms.ingest.inflight", 4);
+
+    public static final int POLLING_MAX_IN_FLIGHT = Integer.getInteger("nms.polling.inflight", 2_000);
+
+    public static final int POLLING_PROCESSOR_INSTANCES = Integer.getInteger("nms.polling.processor.instances", Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+
+    public static final long POLLING_MIN_TIMEOUT = Long.getLong("nms.polling.timeout.min", 10_000);
+
+    public static final long POLLING_MAX_TIMEOUT = Long.getLong("nms.polling.timeout.max", 270_000);
+
+    public static final int POLLING_FAILURE_THRESHOLD = Integer.getInteger("nms.polling.breaker.failures", 2);
+
+    public static final int POLLING_MAX_BACKOFF_CYCLES = Integer.getInteger("nms.polling.breaker.backoff.max", 64);
+
+    public static final long POLLING_CYCLE_WINDOW = Long.getLong("nms.polling.cycle.window", DEFAULT_POLL_INTERVAL * 1_000L);
+
+    public static final String OVERRUN_SKIP = "skip";
+
+    public static final String OVERRUN_OVERLAP = "overlap";
+
+    public static final String OVERRUN_DELAY = "delay";
+
+    public static final String POLLING_OVERRUN_POLICY = System.getProperty("nms.polling.overrun.policy", OVERRUN_SKIP);
+
 
     public static final String CONDITION = "condition";
 
@@ -69,6 +212,12 @@ public class Constants
 
     public static final String POLLED_AT = "polled_at";
 
+    public static final String SCHEDULED = "scheduled";
+
+    public static final String SHARD = "shard";
+
+    public static final String ROWS = "rows";
+
     public static final String QUERY = "query";
 
     public static final String PARAMS = "params";
@@ -125,12 +274,20 @@ public class Constants
 
     public static final String MESSAGE_INVALID_PROFILE_ID = "Invalid profileId. It must be a numeric value.";
 
+    public static final String MESSAGE_INVALID_JOB_ID = "Invalid jobId. It must be a numeric value.";
+
     public static final String MESSAGE_INTERNAL_SERVER_ERROR = "Internal Server Error.";
 
     public static final String MESSAGE_OPERATION_SUCCESSFUL = "Operation successful";
 
     public static final String MESSAGE_ZMQ_NO_RESPONSE = "No response from ZMQ server";
 
+    public static final String MESSAGE_PLUGIN_UNAVAILABLE = "Plugin unavailable";
+
+    public static final String MESSAGE_SEND_QUEUE_FULL = "Plugin send queue full, try again later";
+
+    public static final String MESSAGE_TEMPLATE_MISSING = "Request template missing";
+
     public static final String MESSAGE_BAD_REQUEST = "Bad Request";
 
     public static final String MESSAGE_CREDENTIAL_IN_USE = "Credential profile is in use cant delete";
@@ -145,6 +302,12 @@ public class Constants
 
     public static final String MESSAGE_NOT_FOUND = "Data Not found";
 
+    public static final String MESSAGE_INVALID_PRIORITY = "Field 'priority' must be one of " + String.join(", ", PRIORITIES);
+
+    public static final String MESSAGE_INVALID_POLL_INTERVAL = "Field 'poll_interval' must be an integer number of seconds between " + MIN_POLL_INTERVAL + " and " + MAX_POLL_INTERVAL;
+
+    public static final String MESSAGE_REQUIRED_JOB_FIELDS = "Request body must contain 'poll_interval' or 'priority'";
+
 
     public static final Set<String> REQUIRED_FIELDS_CREDENTIAL = Set.of(DATABASE_CREDENTIAL_PROFILE_NAME, SYSTEM_TYPE, CREDENTIALS);
 
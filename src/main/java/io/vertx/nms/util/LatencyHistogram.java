@@ -0,0 +1,143 @@
+package io.vertx.nms.util;
+
+import io.vertx.core.json.JsonArray;
+
+import java.util.Arrays;
+
+// Log-linear latency histogram in milliseconds.
+// Values below 16 get one bucket each, above that every power of two is split into 8 buckets, so a percentile is
+// accurate to within 12.5%. Histograms have a fixed layout and can be merged by adding their buckets, which lets
+// shards report their own histogram and the API combine them into exact fleet-wide percentiles.
+public class LatencyHistogram
+{
+    private static final int LINEAR_BUCKETS = 16;
+
+    private static final int SUB_BUCKET_BITS = 3;
+
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private static final int LINEAR_BITS = 4;
+
+    private static final int BUCKETS = LINEAR_BUCKETS + (Long.SIZE - LINEAR_BITS) * SUB_BUCKETS;
+
+    private final long[] counts = new long[BUCKETS];
+
+    private long count;
+
+    public void record(long value)
+    {
+        counts[bucketOf(Math.max(0, value))]++;
+
+        count++;
+    }
+
+    public void merge(LatencyHistogram other)
+    {
+        for (var i = 0; i < BUCKETS; i++)
+        {
+            counts[i] += other.counts[i];
+        }
+
+        count += other.count;
+    }
+
+    public long count()
+    {
+        return count;
+    }
+
+    public void reset()
+    {
+        Arrays.fill(counts, 0);
+
+        count = 0;
+    }
+
+    // @param percentile The percentile between 0 and 100.
+    // @return The upper bound of the bucket holding the percentile, or 0 if nothing was recorded.
+    public long percentile(double percentile)
+    {
+        if (count == 0)
+        {
+            return 0;
+        }
+
+        var rank = Math.max(1, (long) Math.ceil(count * percentile / 100));
+
+        var seen = 0L;
+
+        for (var i = 0; i < BUCKETS; i++)
+        {
+            seen += counts[i];
+
+            if (seen >= rank)
+            {
+                return upperBound(i);
+            }
+        }
+
+        return upperBound(BUCKETS - 1);
+    }
+
+    // @return The bucket counts up to the last non-empty bucket.
+    public JsonArray toJson()
+    {
+        var last = BUCKETS - 1;
+
+        while (last >= 0 && counts[last] == 0)
+        {
+            last--;
+        }
+
+        var buckets = new JsonArray();
+
+        for (var i = 0; i <= last; i++)
+        {
+            buckets.add(counts[i]);
+        }
+
+        return buckets;
+    }
+
+    public static LatencyHistogram fromJson(JsonArray buckets)
+    {
+        var histogram = new LatencyHistogram();
+
+        for (var i = 0; i < Math.min(buckets.size(), BUCKETS); i++)
+        {
+            histogram.counts[i] = buckets.getLong(i);
+
+            histogram.count += histogram.counts[i];
+        }
+
+        return histogram;
+    }
+
+    private static int bucketOf(long value)
+    {
+        if (value < LINEAR_BUCKETS)
+        {
+            return (int) value;
+        }
+
+        var exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+
+        var subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+
+        return LINEAR_BUCKETS + (exponent - LINEAR_BITS) * SUB_BUCKETS + subBucket;
+    }
+
+    private static long upperBound(int bucket)
+    {
+        if (bucket < LINEAR_BUCKETS)
+        {
+            return bucket;
+        }
+
+        var exponent = (bucket - LINEAR_BUCKETS) / SUB_BUCKETS + LINEAR_BITS;
+
+        var subBucket = (bucket - LINEAR_BUCKETS) % SUB_BUCKETS;
+
+        return ((long) (SUB_BUCKETS + subBucket + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+}
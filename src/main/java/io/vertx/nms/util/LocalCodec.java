@@ -0,0 +1,61 @@
+package io.vertx.nms.util;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.MessageCodec;
+
+// Event bus codec that hands an object to local consumers by reference instead of copying it.
+// Only for objects that are not modified after sending and never leave the process, so the wire methods are unsupported.
+public class LocalCodec<T> implements MessageCodec<T, T>
+{
+    private final String name;
+
+    private LocalCodec(Class<T> type)
+    {
+        this.name = "local." + type.getName();
+    }
+
+    // Makes the codec the default for the type on this Vert.x instance; later calls for the same type are no-ops,
+    // so every verticle sending the type can register it on start.
+    public static <T> void register(Vertx vertx, Class<T> type)
+    {
+        try
+        {
+            vertx.eventBus().registerDefaultCodec(type, new LocalCodec<>(type));
+        }
+        catch (IllegalStateException alreadyRegistered)
+        {
+            // Registered by another verticle.
+        }
+    }
+
+    @Override
+    public void encodeToWire(Buffer buffer, T value)
+    {
+        throw new UnsupportedOperationException(name + " is local only");
+    }
+
+    @Override
+    public T decodeFromWire(int pos, Buffer buffer)
+    {
+        throw new UnsupportedOperationException(name + " is local only");
+    }
+
+    @Override
+    public T transform(T value)
+    {
+        return value;
+    }
+
+    @Override
+    public String name()
+    {
+        return name;
+    }
+
+    @Override
+    public byte systemCodecID()
+    {
+        return -1;
+    }
+}
@@ -0,0 +1,326 @@
+package io.vertx.nms.util;
+
+import java.util.Arrays;
+
+// Tracks outstanding requests by a primitive long key, e.g. a job id or a request sequence id.
+// Entries live in an open-addressing table (linear probing, backward shift deletion), so tracking a request
+// allocates nothing and keys and timestamps are never boxed.
+// Expiry uses a hashed timing wheel: each entry is also placed in the slot of its deadline and a tick only looks at one slot,
+// so detecting timeouts costs the same no matter how many requests are outstanding.
+public class PendingTracker<V>
+{
+    public static final long MISSING = Long.MIN_VALUE;
+
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private static final int WHEEL_SLOTS = 512;
+
+    private static final int INITIAL_SLOT_CAPACITY = 16;
+
+    public interface Handler<V>
+    {
+        void handle(long key, long sentAt, V ref);
+    }
+
+    private long[] keys;
+
+    private long[] sentAts;
+
+    private long[] deadlines;
+
+    private Object[] refs;
+
+    private int mask;
+
+    private int size;
+
+    private final long tick;
+
+    private final long[][] slotKeys = new long[WHEEL_SLOTS][];
+
+    private final long[][] slotDeadlines = new long[WHEEL_SLOTS][];
+
+    private final int[] slotSizes = new int[WHEEL_SLOTS];
+
+    private long lastTick;
+
+    // @param expectedSize The number of entries the table should hold without resizing.
+    // @param tick The wheel resolution in milliseconds; timeouts are detected within one tick.
+    // @param now The current time in milliseconds.
+    public PendingTracker(int expectedSize, long tick, long now)
+    {
+        var capacity = Integer.highestOneBit(Math.max(16, expectedSize * 2 - 1)) << 1;
+
+        allocate(capacity);
+
+        this.tick = tick;
+
+        this.lastTick = now / tick;
+    }
+
+    // Tracks a request, replacing any earlier entry with the same key.
+    // @param key The request key, any value except Long.MIN_VALUE.
+    // @param sentAt The send time in milliseconds.
+    // @param deadline The time in milliseconds after which the request expires.
+    // @param ref An optional object kept with the request, may be null.
+    public void track(long key, long sentAt, long deadline, V ref)
+    {
+        if (size * 2 >= keys.length)
+        {
+            resize(keys.length * 2);
+        }
+
+        var index = indexOf(key);
+
+        if (keys[index] == EMPTY)
+        {
+            keys[index] = key;
+
+            size++;
+        }
+
+        sentAts[index] = sentAt;
+
+        deadlines[index] = deadline;
+
+        refs[index] = ref;
+
+        addToWheel(key, deadline);
+    }
+
+    public boolean contains(long key)
+    {
+        return keys[indexOf(key)] != EMPTY;
+    }
+
+    // @return The send time of the request, or MISSING if it is not tracked.
+    public long sentAt(long key)
+    {
+        var index = indexOf(key);
+
+        return keys[index] == EMPTY ? MISSING : sentAts[index];
+    }
+
+    // @return The object kept with the request, or null if it is not tracked.
+    @SuppressWarnings("unchecked")
+    public V ref(long key)
+    {
+        var index = indexOf(key);
+
+        return keys[index] == EMPTY ? null : (V) refs[index];
+    }
+
+    // Stops tracking the request.
+    // @return The send time of the request, or MISSING if it was not tracked.
+    public long complete(long key)
+    {
+        var index = indexOf(key);
+
+        if (keys[index] == EMPTY)
+        {
+            return MISSING;
+        }
+
+        var sentAt = sentAts[index];
+
+        removeAt(index);
+
+        return sentAt;
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    // Hands every tracked request to the handler without removing it.
+    @SuppressWarnings("unchecked")
+    public void forEach(Handler<V> handler)
+    {
+        for (var index = 0; index < keys.length; index++)
+        {
+            if (keys[index] != EMPTY)
+            {
+                handler.handle(keys[index], sentAts[index], (V) refs[index]);
+            }
+        }
+    }
+
+    // Removes every request whose deadline has passed and hands it to the handler.
+    // Only the wheel slots of the ticks elapsed since the previous call are visited.
+    // @param now The current time in milliseconds.
+    // @param handler Called once for every expired request.
+    @SuppressWarnings("unchecked")
+    public void expire(long now, Handler<V> handler)
+    {
+        var nowTick = now / tick;
+
+        var firstTick = Math.max(lastTick + 1, nowTick - WHEEL_SLOTS + 1);
+
+        for (var currentTick = firstTick; currentTick <= nowTick; currentTick++)
+        {
+            var slot = (int) (currentTick % WHEEL_SLOTS);
+
+            var slotKey = slotKeys[slot];
+
+            var slotDeadline = slotDeadlines[slot];
+
+            var kept = 0;
+
+            for (var i = 0; i < slotSizes[slot]; i++)
+            {
+                var key = slotKey[i];
+
+                var deadline = slotDeadline[i];
+
+                var index = indexOf(key);
+
+                if (keys[index] == EMPTY || deadlines[index] != deadline)
+                {
+                    // Completed or re-tracked with another deadline, this wheel entry is stale.
+                    continue;
+                }
+
+                if (deadline <= now)
+                {
+                    var sentAt = sentAts[index];
+
+                    var ref = (V) refs[index];
+
+                    removeAt(index);
+
+                    handler.handle(key, sentAt, ref);
+                }
+                else
+                {
+                    // Deadline is one or more wheel rounds away.
+                    slotKey[kept] = key;
+
+                    slotDeadline[kept] = deadline;
+
+                    kept++;
+                }
+            }
+
+            slotSizes[slot] = kept;
+        }
+
+        lastTick = Math.max(lastTick, nowTick);
+    }
+
+    private void addToWheel(long key, long deadline)
+    {
+        // Rounded up so that the slot is only visited once the deadline has passed.
+        var slot = (int) (Math.max((deadline + tick - 1) / tick, lastTick + 1) % WHEEL_SLOTS);
+
+        if (slotKeys[slot] == null)
+        {
+            slotKeys[slot] = new long[INITIAL_SLOT_CAPACITY];
+
+            slotDeadlines[slot] = new long[INITIAL_SLOT_CAPACITY];
+        }
+        else if (slotSizes[slot] == slotKeys[slot].length)
+        {
+            slotKeys[slot] = Arrays.copyOf(slotKeys[slot], slotSizes[slot] * 2);
+
+            slotDeadlines[slot] = Arrays.copyOf(slotDeadlines[slot], slotSizes[slot] * 2);
+        }
+
+        slotKeys[slot][slotSizes[slot]] = key;
+
+        slotDeadlines[slot][slotSizes[slot]] = deadline;
+
+        slotSizes[slot]++;
+    }
+
+    // Returns the index holding the key, or the empty index where it would be inserted.
+    private int indexOf(long key)
+    {
+        var index = Util.hash(key) & mask;
+
+        while (keys[index] != EMPTY && keys[index] != key)
+        {
+            index = (index + 1) & mask;
+        }
+
+        return index;
+    }
+
+    // Removes the entry at the index and shifts following entries of the same probe run back into the gap.
+    private void removeAt(int index)
+    {
+        size--;
+
+        var gap = index;
+
+        var next = (gap + 1) & mask;
+
+        while (keys[next] != EMPTY)
+        {
+            var home = Util.hash(keys[next]) & mask;
+
+            if (((next - home) & mask) >= ((next - gap) & mask))
+            {
+                keys[gap] = keys[next];
+
+                sentAts[gap] = sentAts[next];
+
+                deadlines[gap] = deadlines[next];
+
+                refs[gap] = refs[next];
+
+                gap = next;
+            }
+
+            next = (next + 1) & mask;
+        }
+
+        keys[gap] = EMPTY;
+
+        refs[gap] = null;
+    }
+
+    private void allocate(int capacity)
+    {
+        keys = new long[capacity];
+
+        Arrays.fill(keys, EMPTY);
+
+        sentAts = new long[capacity];
+
+        deadlines = new long[capacity];
+
+        refs = new Object[capacity];
+
+        mask = capacity - 1;
+    }
+
+    private void resize(int capacity)
+    {
+        var oldKeys = keys;
+
+        var oldSentAts = sentAts;
+
+        var oldDeadlines = deadlines;
+
+        var oldRefs = refs;
+
+        allocate(capacity);
+
+        for (var i = 0; i < oldKeys.length; i++)
+        {
+            if (oldKeys[i] != EMPTY)
+            {
+                var index = indexOf(oldKeys[i]);
+
+                keys[index] = oldKeys[i];
+
+                sentAts[index] = oldSentAts[i];
+
+                deadlines[index] = oldDeadlines[i];
+
+                refs[index] = oldRefs[i];
+            }
+        }
+    }
+}
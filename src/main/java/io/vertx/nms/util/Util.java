@@ -289,6 +289,52 @@ public class Util
         return tables;
     }
 
+    // Mixes the bits of a long id into a well distributed hash (murmur3 finalizer).
+    // Used wherever devices are spread by job id so the spread stays stable across restarts.
+    // @param value The id to hash.
+    // @return A 32-bit hash of the id.
+    public static int hash(long value)
+    {
+        value ^= value >>> 33;
+
+        value *= 0xff51afd7ed558ccdL;
+
+        value ^= value >>> 33;
+
+        value *= 0xc4ceb9fe1a85ec53L;
+
+        value ^= value >>> 33;
+
+        return (int) value;
+    }
+
+    // Returns the polling processor shard that owns the given job.
+    // @param jobId The job id of the device.
+    // @return The shard index between 0 and POLLING_PROCESSOR_INSTANCES - 1.
+    public static int shardOf(long jobId)
+    {
+        return Math.floorMod(hash(jobId), Constants.POLLING_PROCESSOR_INSTANCES);
+    }
+
+    // Returns the per shard event bus address of a polling processor.
+    // @param address The base event bus address.
+    // @param shard The shard index.
+    public static String shardAddress(String address, int shard)
+    {
+        return address + "." + shard;
+    }
+
+    // Returns the ZMQ endpoint of a plugin worker. Worker 0 uses the endpoint itself, worker n the port 2 * n above it,
+    // so the request and reply ports of all workers interleave without overlapping.
+    // @param endpoint The base tcp endpoint, e.g. tcp://localhost:5555.
+    // @param worker The worker index.
+    public static String workerAddress(String endpoint, int worker)
+    {
+        var portIndex = endpoint.lastIndexOf(':') + 1;
+
+        return endpoint.substring(0, portIndex) + (Integer.parseInt(endpoint.substring(portIndex)) + 2 * worker);
+    }
+
     // Extracts table names from a SELECT query using regex pattern matching.
     // @param query The SQL SELECT query string.
     // @return A set of table names found in the query.
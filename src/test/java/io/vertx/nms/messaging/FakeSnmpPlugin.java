@@ -0,0 +1,402 @@
+package io.vertx.nms.messaging;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.nms.util.Constants;
+import io.vertx.nms.util.Util;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.zeromq.SocketType;
+import org.zeromq.ZMQ;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// In-process stand-in for the SNMP plugin, speaking the same protocol on the same per-worker endpoints: it connects
+// a PULL socket to the request endpoint and a PUSH socket to the reply endpoint of every worker, answers health
+// checks with ok, and answers discovery, polling and batch requests with generated data.
+// It simulates a fleet of devices with job ids 1 to devices; the counters of a device grow with every poll.
+// Replies are held back for a latency drawn from a log-normal distribution, given by its median and 99th percentile,
+// and polls are left unanswered at the loss rate, as the plugin does for unreachable devices.
+// Every worker is served by its own thread, which owns the sockets of that worker.
+public class FakeSnmpPlugin implements AutoCloseable
+{
+    private static final Logger logger = LoggerFactory.getLogger(FakeSnmpPlugin.class);
+
+    private static final byte[] HEALTH_CHECK = Constants.PLUGIN_HEALTH_CHECK.getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] HEALTH_OK = Constants.PLUGIN_HEALTH_OK.getBytes(StandardCharsets.UTF_8);
+
+    // The standard normal quantile of the 99th percentile.
+    private static final double Z_P99 = 2.326;
+
+    private static final int IDLE_WAIT_MS = 100;
+
+    private static final String BATCH = "batch";
+
+    private static final String REQUESTS = "requests";
+
+    private static final String RESULTS = "results";
+
+    private static final String RECEIVED = "received";
+
+    private static final String REPLIED = "replied";
+
+    private static final String LOST = "lost";
+
+    private static final String HEARTBEATS = "heartbeats";
+
+    private static final String BATCHES = "batches";
+
+    private static final String BYTES_OUT = "bytes_out";
+
+    // @param devices The number of simulated devices, with job ids 1 to devices.
+    // @param latencyMedian The median reply latency in milliseconds.
+    // @param latencyP99 The 99th percentile reply latency in milliseconds, at most the median for a fixed latency.
+    // @param lossRate The fraction of polls left unanswered.
+    // @param interfaces The number of interfaces of every device.
+    // @param padding Filler characters added to the system description, to grow replies independently of interfaces.
+    // @param encoding The encoding of the replies, WireCodec.JSON or WireCodec.CBOR.
+    public record Profile(int devices, long latencyMedian, long latencyP99, double lossRate, int interfaces, int padding, String encoding)
+    {
+        // @return The profile given by the fake.* system properties, for running the plugin on its own.
+        public static Profile fromSystemProperties()
+        {
+            return new Profile(
+                    Integer.getInteger("fake.devices", 2_000),
+                    Long.getLong("fake.latency.median", 20),
+                    Long.getLong("fake.latency.p99", 200),
+                    Double.parseDouble(System.getProperty("fake.loss", "0.01")),
+                    Integer.getInteger("fake.interfaces", 48),
+                    Integer.getInteger("fake.padding", 0),
+                    System.getProperty("fake.encoding", WireCodec.JSON));
+        }
+    }
+
+    // A reply waiting for its simulated latency to pass.
+    private record Delayed(long dueAt, byte[] frame) {}
+
+    private final Profile profile;
+
+    private final int workers;
+
+    private final double sigma;
+
+    private final String description;
+
+    // Polls answered per device, from which its counters are derived.
+    private final AtomicLongArray polls;
+
+    private final List<Thread> threads = new ArrayList<>();
+
+    private final LongAdder received = new LongAdder();
+
+    private final LongAdder replied = new LongAdder();
+
+    private final LongAdder lost = new LongAdder();
+
+    private final LongAdder heartbeats = new LongAdder();
+
+    private final LongAdder batches = new LongAdder();
+
+    private final LongAdder bytesOut = new LongAdder();
+
+    private ZMQ.Context context;
+
+    private volatile boolean running;
+
+    // @param profile The simulated fleet and network.
+    // @param workers The number of plugin workers to serve, usually Constants.PLUGIN_WORKERS.
+    public FakeSnmpPlugin(Profile profile, int workers)
+    {
+        this.profile = profile;
+
+        this.workers = workers;
+
+        this.sigma = profile.latencyP99() > profile.latencyMedian() && profile.latencyMedian() > 0
+                ? Math.log((double) profile.latencyP99() / profile.latencyMedian()) / Z_P99
+                : 0;
+
+        this.description = "Fake SNMP agent " + "x".repeat(Math.max(0, profile.padding()));
+
+        this.polls = new AtomicLongArray(Math.max(1, profile.devices()));
+    }
+
+    // Connects to the endpoints of every worker and starts serving them.
+    public FakeSnmpPlugin start()
+    {
+        context = ZMQ.context(1);
+
+        running = true;
+
+        for (var worker = 0; worker < workers; worker++)
+        {
+            var index = worker;
+
+            var thread = new Thread(() -> serve(index), "fake-snmp-plugin-" + worker);
+
+            thread.setDaemon(true);
+
+            thread.start();
+
+            threads.add(thread);
+        }
+
+        logger.info("Fake SNMP plugin serving {} worker(s) with {} devices, {} interfaces each, latency p50 {} ms p99 {} ms, loss {}",
+                workers, profile.devices(), profile.interfaces(), profile.latencyMedian(), profile.latencyP99(), profile.lossRate());
+
+        return this;
+    }
+
+    // @param pollInterval The poll interval of every device in seconds.
+    // @return The simulated devices as rows of the polling query, for a mocked database.
+    public JsonArray devices(int pollInterval)
+    {
+        var devices = new JsonArray();
+
+        for (var jobId = 1; jobId <= profile.devices(); jobId++)
+        {
+            devices.add(new JsonObject()
+                    .put(Constants.DATABASE_JOB_ID, jobId)
+                    .put(Constants.IP, "10." + (jobId >> 16 & 0xff) + "." + (jobId >> 8 & 0xff) + "." + (jobId & 0xff))
+                    .put(Constants.SYSTEM_TYPE, Constants.SNMP)
+                    .put(Constants.PORT, 161)
+                    .put(Constants.DATABASE_POLL_INTERVAL, pollInterval)
+                    .put(Constants.CREDENTIALS, new JsonObject()
+                            .put(Constants.COMMUNITY, "public")
+                            .put(Constants.VERSION, "2c")));
+        }
+
+        return devices;
+    }
+
+    public JsonObject stats()
+    {
+        return new JsonObject()
+                .put(RECEIVED, received.sum())
+                .put(REPLIED, replied.sum())
+                .put(LOST, lost.sum())
+                .put(HEARTBEATS, heartbeats.sum())
+                .put(BATCHES, batches.sum())
+                .put(BYTES_OUT, bytesOut.sum());
+    }
+
+    @Override
+    public void close()
+    {
+        running = false;
+
+        for (var thread : threads)
+        {
+            try
+            {
+                thread.join(IDLE_WAIT_MS * 5);
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        if (context != null)
+        {
+            context.close();
+        }
+
+        logger.info("Fake SNMP plugin stopped: {}", stats().encode());
+    }
+
+    // Receives the requests of one worker and sends every reply once its latency has passed, waiting on the request
+    // socket no longer than until the next reply is due.
+    private void serve(int worker)
+    {
+        try (var pull = context.socket(SocketType.PULL); var push = context.socket(SocketType.PUSH))
+        {
+            pull.connect(Util.workerAddress(Constants.ZMQ_PUSH_ADDRESS, worker));
+
+            push.connect(Util.workerAddress(Constants.ZMQ_PULL_ADDRESS, worker));
+
+            push.setLinger(0);
+
+            var codec = new WireCodec(profile.encoding());
+
+            var random = new Random(worker);
+
+            var due = new PriorityQueue<Delayed>(Comparator.comparingLong(Delayed::dueAt));
+
+            while (running)
+            {
+                var now = System.currentTimeMillis();
+
+                while (!due.isEmpty() && due.peek().dueAt() <= now)
+                {
+                    var frame = due.poll().frame();
+
+                    push.send(frame, 0);
+
+                    bytesOut.add(frame.length);
+                }
+
+                pull.setReceiveTimeOut((int) Math.max(1, Math.min(IDLE_WAIT_MS, due.isEmpty() ? IDLE_WAIT_MS : due.peek().dueAt() - now)));
+
+                var request = pull.recv();
+
+                if (request == null)
+                {
+                    continue;
+                }
+
+                if (Arrays.equals(request, HEALTH_CHECK))
+                {
+                    heartbeats.increment();
+
+                    push.send(HEALTH_OK, 0);
+
+                    continue;
+                }
+
+                handle(codec.decode(request), codec, random, due, now);
+            }
+        }
+        catch (Exception e)
+        {
+            if (running)
+            {
+                logger.error("Fake SNMP plugin worker {} failed", worker, e);
+            }
+        }
+    }
+
+    // Queues the reply to a request, or to every request of a batch envelope in one envelope that is due with its
+    // slowest result.
+    private void handle(JsonObject request, WireCodec codec, Random random, PriorityQueue<Delayed> due, long now)
+    {
+        if (BATCH.equalsIgnoreCase(request.getString(Constants.REQUEST_TYPE)))
+        {
+            batches.increment();
+
+            var results = new JsonArray();
+
+            var latency = 0L;
+
+            for (var entry : request.getJsonArray(REQUESTS))
+            {
+                var reply = reply((JsonObject) entry, random);
+
+                if (reply != null)
+                {
+                    results.add(reply);
+
+                    latency = Math.max(latency, latency(random));
+                }
+            }
+
+            due.add(new Delayed(now + latency, codec.encode(new JsonObject().put(Constants.REQUEST_TYPE, BATCH).put(RESULTS, results))));
+
+            return;
+        }
+
+        var reply = reply(request, random);
+
+        if (reply != null)
+        {
+            due.add(new Delayed(now + latency(random), codec.encode(reply)));
+        }
+    }
+
+    // @return The reply to a discovery or polling request, or null if the poll is lost.
+    private JsonObject reply(JsonObject request, Random random)
+    {
+        received.increment();
+
+        if (Constants.DISCOVERY.equalsIgnoreCase(request.getString(Constants.REQUEST_TYPE)))
+        {
+            replied.increment();
+
+            return new JsonObject()
+                    .put(Constants.REQUEST_TYPE, Constants.DISCOVERY)
+                    .put(Constants.REQUEST_ID, request.getValue(Constants.REQUEST_ID))
+                    .put(Constants.IP, request.getString(Constants.IP))
+                    .put(Constants.STATUS, Constants.SUCCESS);
+        }
+
+        if (random.nextDouble() < profile.lossRate())
+        {
+            lost.increment();
+
+            return null;
+        }
+
+        replied.increment();
+
+        var jobId = Long.parseLong(String.valueOf(request.getValue(Constants.DATABASE_JOB_ID)));
+
+        var groups = request.getJsonArray(Constants.METRIC_GROUPS);
+
+        var data = new JsonObject();
+
+        var poll = polls.incrementAndGet((int) Math.floorMod(jobId - 1, (long) polls.length()));
+
+        if (groups == null || groups.contains(Constants.METRIC_GROUP_SYSTEM))
+        {
+            data.put("system.name", "fake-device-" + jobId)
+                    .put("system.description", description)
+                    .put("system.object.id", ".1.3.6.1.4.1.9.1.1208")
+                    .put("system.location", "rack " + jobId % 42)
+                    .put("system.uptime", poll * 100);
+        }
+
+        if (groups == null || groups.contains(Constants.METRIC_GROUP_INTERFACES))
+        {
+            var interfaces = new JsonArray();
+
+            for (var i = 0; i < profile.interfaces(); i++)
+            {
+                interfaces.add(new JsonObject()
+                        .put("interface.name", "GigabitEthernet0/" + i)
+                        .put("interface.index", i + 1)
+                        .put("interface.operational.status", "1")
+                        .put("interface.speed", 1_000_000_000L)
+                        .put("interface.sent.octets", poll * 1_250_000L * (i + 1))
+                        .put("interface.received.octets", poll * 2_500_000L * (i + 1))
+                        .put("interface.sent.error.packets", poll % 3)
+                        .put("interface.received.error.packets", poll % 5));
+            }
+
+            data.put(Constants.METRIC_GROUP_INTERFACES, interfaces);
+        }
+
+        return new JsonObject()
+                .put(Constants.REQUEST_TYPE, Constants.POLLING)
+                .put(Constants.DATABASE_JOB_ID, String.valueOf(jobId))
+                .put(Constants.REQUEST_ID, request.getValue(Constants.REQUEST_ID))
+                .put(Constants.DATA, data);
+    }
+
+    // @return A reply latency in milliseconds drawn from the log-normal distribution of the profile.
+    private long latency(Random random)
+    {
+        return Math.round(profile.latencyMedian() * Math.exp(sigma * random.nextGaussian()));
+    }
+
+    // Runs the fake plugin on its own, configured by the fake.* system properties, e.g. to load a server started
+    // from Main with a database seeded from devices().
+    public static void main(String[] args) throws InterruptedException
+    {
+        var plugin = new FakeSnmpPlugin(Profile.fromSystemProperties(), Constants.PLUGIN_WORKERS).start();
+
+        Runtime.getRuntime().addShutdownHook(new Thread(plugin::close));
+
+        for (var thread : plugin.threads)
+        {
+            thread.join();
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package io.vertx.nms.messaging;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FrameRecorderTest
+{
+    //Tests that a later run is appended after the last complete frame, with a run start marker, past a cut off frame
+    @Test
+    void testAppendsRunAfterLastCompleteFrame(@TempDir Path directory) throws Exception
+    {
+        var file = directory.resolve("frames.rec");
+
+        try (var recorder = new FrameRecorder(file, Long.MAX_VALUE))
+        {
+            recorder.record(FrameRecorder.REQUEST, new byte[] {1});
+
+            recorder.record(FrameRecorder.REPLY, new byte[] {2, 2});
+        }
+
+        // A frame cut off by a crash: its header promises more bytes than were written.
+        try (var out = new DataOutputStream(Files.newOutputStream(file, StandardOpenOption.APPEND)))
+        {
+            out.writeByte(FrameRecorder.REPLY);
+
+            out.writeLong(System.currentTimeMillis() * 1_000);
+
+            out.writeInt(100);
+
+            out.write(new byte[10]);
+        }
+
+        try (var recorder = new FrameRecorder(file, Long.MAX_VALUE))
+        {
+            recorder.record(FrameRecorder.REPLY, new byte[] {3, 3, 3});
+        }
+
+        var frames = new ArrayList<FrameRecorder.Frame>();
+
+        try (var reader = new FrameRecorder.Reader(file))
+        {
+            FrameRecorder.Frame frame;
+
+            while ((frame = reader.next()) != null)
+            {
+                frames.add(frame);
+            }
+        }
+
+        assertEquals(5, frames.size());
+
+        assertEquals(FrameRecorder.RUN_START, frames.get(0).direction());
+
+        assertEquals(FrameRecorder.REQUEST, frames.get(1).direction());
+
+        assertArrayEquals(new byte[] {2, 2}, frames.get(2).bytes());
+
+        assertEquals(FrameRecorder.RUN_START, frames.get(3).direction());
+
+        assertArrayEquals(new byte[] {3, 3, 3}, frames.get(4).bytes());
+    }
+
+    //Tests that a frame with an impossible length is reported as a corrupt recording, and the file is not appended to
+    @Test
+    void testRejectsCorruptRecording(@TempDir Path directory) throws Exception
+    {
+        var file = directory.resolve("frames.rec");
+
+        try (var recorder = new FrameRecorder(file, Long.MAX_VALUE))
+        {
+            recorder.record(FrameRecorder.REPLY, new byte[] {1});
+        }
+
+        try (var out = new DataOutputStream(Files.newOutputStream(file, StandardOpenOption.APPEND)))
+        {
+            out.writeByte(FrameRecorder.REPLY);
+
+            out.writeLong(System.currentTimeMillis() * 1_000);
+
+            out.writeInt(-1);
+        }
+
+        var size = Files.size(file);
+
+        try (var reader = new FrameRecorder.Reader(file))
+        {
+            reader.next();
+
+            reader.next();
+
+            assertThrows(IOException.class, reader::next);
+        }
+
+        assertThrows(IOException.class, () -> new FrameRecorder(file, Long.MAX_VALUE));
+
+        assertEquals(size, Files.size(file));
+    }
+
+    //Tests that a file which is not a recording is neither read nor appended to
+    @Test
+    void testRejectsOtherFiles(@TempDir Path directory) throws Exception
+    {
+        var file = directory.resolve("notes.txt");
+
+        Files.writeString(file, "not");
+
+        assertThrows(IOException.class, () -> new FrameRecorder.Reader(file));
+
+        assertThrows(IOException.class, () -> new FrameRecorder(file, Long.MAX_VALUE));
+
+        assertEquals("not", Files.readString(file));
+    }
+
+    //Tests that dropped frames leave the recorded size untouched, whether they are over the limit or come after close
+    @Test
+    void testDroppedFramesKeepSize(@TempDir Path directory) throws Exception
+    {
+        var file = directory.resolve("frames.rec");
+
+        var recorder = new FrameRecorder(file, 64);
+
+        var size = recorder.stats().getLong("bytes");
+
+        recorder.record(FrameRecorder.REPLY, new byte[64]);
+
+        assertEquals(size, recorder.stats().getLong("bytes"));
+
+        recorder.close();
+
+        recorder.record(FrameRecorder.REPLY, new byte[1]);
+
+        assertEquals(size, recorder.stats().getLong("bytes"));
+
+        assertEquals(2L, recorder.stats().getLong("dropped"));
+
+        assertEquals(size, Files.size(file));
+    }
+}
@@ -0,0 +1,205 @@
+package io.vertx.nms.messaging;
+
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.nms.polling.MetricGroups;
+import io.vertx.nms.polling.PollRow;
+import io.vertx.nms.util.Constants;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PollReplyParserTest
+{
+    private static final Logger logger = LoggerFactory.getLogger(PollReplyParserTest.class);
+
+    private static final int REPLIES = 5_000;
+
+    private static final int INTERFACES = 48;
+
+    private static final long POLLED_AT = 1_700_000_000_000L;
+
+    //Tests that typed replies split and written as rows give the same data column as the JSON tree path, for both encodings
+    @Test
+    void testTypedRowsMatchTreeRows() throws IOException
+    {
+        for (var encoding : new String[]{WireCodec.JSON, WireCodec.CBOR})
+        {
+            var frame = new WireCodec(encoding).encode(pollingReply());
+
+            var codec = new WireCodec(WireCodec.AUTO);
+
+            var expected = treeRows(codec.decode(frame));
+
+            var rows = new ArrayList<PollRow>();
+
+            var reply = codec.decodePollReply(frame);
+
+            assertEquals(42L, reply.jobId());
+
+            MetricGroups.split(reply, MetricGroups.ALL, POLLED_AT, rows::add);
+
+            assertEquals(expected.size(), rows.size());
+
+            for (var i = 0; i < rows.size(); i++)
+            {
+                var writer = new StringWriter();
+
+                try (var generator = new JsonMapper().getFactory().createGenerator(writer))
+                {
+                    rows.get(i).writeData(generator);
+                }
+
+                assertEquals(expected.get(i).getString(Constants.DATABASE_METRIC_GROUP), rows.get(i).metricGroup());
+
+                assertEquals(expected.get(i).getJsonObject(Constants.DATA), new JsonObject(writer.toString()));
+
+                assertEquals(expected.get(i).getJsonObject(Constants.DATA), rows.get(i).data());
+            }
+
+            assertNull(codec.decodePollReply(new WireCodec(encoding).encode(new JsonObject().put(Constants.REQUEST_TYPE, Constants.DISCOVERY))));
+        }
+    }
+
+    //Measures bytes allocated per polling reply from frame to data column, for the JSON tree path and the typed path
+    @Test
+    @Tag("benchmark")
+    void testMeasureAllocationPerReply() throws IOException
+    {
+        var threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        var thread = Thread.currentThread().getId();
+
+        var generatorFactory = new JsonMapper().getFactory();
+
+        for (var encoding : new String[]{WireCodec.JSON, WireCodec.CBOR})
+        {
+            var frame = new WireCodec(encoding).encode(pollingReply());
+
+            var codec = new WireCodec(WireCodec.AUTO);
+
+            var writer = new StringWriter();
+
+            var tree = 0L;
+
+            var typed = 0L;
+
+            // The first round warms up both paths, the second is measured.
+            for (var round = 0; round < 2; round++)
+            {
+                var start = threads.getThreadAllocatedBytes(thread);
+
+                for (var i = 0; i < REPLIES; i++)
+                {
+                    writer.getBuffer().setLength(0);
+
+                    for (var row : treeRows(codec.decode(frame).copy()))
+                    {
+                        writer.write(row.getJsonObject(Constants.DATA).encode());
+                    }
+                }
+
+                tree = (threads.getThreadAllocatedBytes(thread) - start) / REPLIES;
+
+                start = threads.getThreadAllocatedBytes(thread);
+
+                for (var i = 0; i < REPLIES; i++)
+                {
+                    writer.getBuffer().setLength(0);
+
+                    try (var generator = generatorFactory.createGenerator(writer))
+                    {
+                        generator.setRootValueSeparator(null);
+
+                        MetricGroups.split(codec.decodePollReply(frame), MetricGroups.ALL, POLLED_AT, row ->
+                        {
+                            try
+                            {
+                                row.writeData(generator);
+                            }
+                            catch (IOException e)
+                            {
+                                throw new IllegalStateException(e);
+                            }
+                        });
+                    }
+                }
+
+                typed = (threads.getThreadAllocatedBytes(thread) - start) / REPLIES;
+            }
+
+            logger.info("{}: {} bytes allocated per reply with JSON trees, {} bytes with typed records", encoding, tree, typed);
+
+            assertTrue(typed < tree, encoding + ": typed records allocate " + typed + " bytes per reply, JSON trees " + tree);
+        }
+    }
+
+    // The ingestion path before typed records: the reply split into JSON objects, one row object per group.
+    private static ArrayList<JsonObject> treeRows(JsonObject reply)
+    {
+        var interfaces = new JsonObject();
+
+        var system = new JsonObject();
+
+        for (var entry : reply.getJsonObject(Constants.DATA))
+        {
+            (entry.getKey().equals(Constants.METRIC_GROUP_INTERFACES) || entry.getKey().startsWith("interface.") ? interfaces : system)
+                    .put(entry.getKey(), entry.getValue());
+        }
+
+        var rows = new ArrayList<JsonObject>();
+
+        rows.add(new JsonObject()
+                .put(Constants.DATABASE_JOB_ID, Long.parseLong(reply.getString(Constants.DATABASE_JOB_ID)))
+                .put(Constants.DATA, interfaces)
+                .put(Constants.POLLED_AT, POLLED_AT)
+                .put(Constants.DATABASE_METRIC_GROUP, Constants.METRIC_GROUP_INTERFACES));
+
+        rows.add(new JsonObject()
+                .put(Constants.DATABASE_JOB_ID, Long.parseLong(reply.getString(Constants.DATABASE_JOB_ID)))
+                .put(Constants.DATA, system)
+                .put(Constants.POLLED_AT, POLLED_AT)
+                .put(Constants.DATABASE_METRIC_GROUP, Constants.METRIC_GROUP_SYSTEM));
+
+        return rows;
+    }
+
+    private static JsonObject pollingReply()
+    {
+        var interfaces = new JsonArray();
+
+        for (var i = 0; i < INTERFACES; i++)
+        {
+            interfaces.add(new JsonObject()
+                    .put("interface.name", "GigabitEthernet0/" + i)
+                    .put("interface.index", i)
+                    .put("interface.operational.status", "1")
+                    .put("interface.speed", 1_000_000_000L)
+                    .put("interface.sent.octets", 918_273_645_123L + i)
+                    .put("interface.received.octets", 123_456_789_012L + i)
+                    .put("interface.sent.error.packets", i % 3)
+                    .put("interface.received.error.packets", i % 5));
+        }
+
+        return new JsonObject()
+                .put(Constants.REQUEST_TYPE, Constants.POLLING)
+                .put(Constants.DATABASE_JOB_ID, "42")
+                .put(Constants.REQUEST_ID, "7")
+                .put(Constants.DATA, new JsonObject()
+                        .put("system.name", "core-switch-01")
+                        .put("system.uptime", "12 days, 4 hours, 3 minutes, 10 seconds")
+                        .put("interface.count", INTERFACES)
+                        .put(Constants.METRIC_GROUP_INTERFACES, interfaces));
+    }
+}
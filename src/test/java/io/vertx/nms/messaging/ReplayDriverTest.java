@@ -0,0 +1,127 @@
+package io.vertx.nms.messaging;
+
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import io.vertx.nms.polling.IngestBatch;
+import io.vertx.nms.polling.PollingProcessor;
+import io.vertx.nms.util.Constants;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith(VertxExtension.class)
+class ReplayDriverTest
+{
+    private static final int REPLIES = 50;
+
+    //Tests that a recording is read back frame by frame and its polling replies, single and batched, reach ingestion
+    @Test
+    void testReplaysRecordingIntoIngestion(Vertx vertx, VertxTestContext testContext, @TempDir Path directory) throws Exception
+    {
+        var file = directory.resolve("frames.rec");
+
+        var codec = new WireCodec(WireCodec.JSON);
+
+        try (var recorder = new FrameRecorder(file, Long.MAX_VALUE))
+        {
+            recorder.record(FrameRecorder.REQUEST, codec.encode(new JsonObject().put(Constants.REQUEST_TYPE, Constants.POLLING).put(Constants.DATABASE_JOB_ID, 1)));
+
+            recorder.record(FrameRecorder.REPLY, codec.encode(new JsonObject().put(Constants.REQUEST_TYPE, Constants.DISCOVERY).put(Constants.REQUEST_ID, "1").put(Constants.STATUS, Constants.SUCCESS)));
+
+            for (var jobId = 1; jobId < REPLIES; jobId++)
+            {
+                recorder.record(FrameRecorder.REPLY, codec.encode(pollingReply(jobId)));
+            }
+
+            recorder.record(FrameRecorder.REPLY, codec.encode(new JsonObject().put(Constants.REQUEST_TYPE, "batch").put("results", new JsonArray().add(pollingReply(REPLIES)))));
+        }
+
+        try (var reader = new FrameRecorder.Reader(file))
+        {
+            assertEquals(FrameRecorder.RUN_START, reader.next().direction());
+
+            var first = reader.next();
+
+            assertEquals(FrameRecorder.REQUEST, first.direction());
+
+            var previous = first.timestamp();
+
+            var count = 1;
+
+            FrameRecorder.Frame frame;
+
+            while ((frame = reader.next()) != null)
+            {
+                assertEquals(FrameRecorder.REPLY, frame.direction());
+
+                assertTrue(frame.timestamp() >= previous);
+
+                previous = frame.timestamp();
+
+                count++;
+            }
+
+            assertEquals(REPLIES + 2, count);
+        }
+
+        var rows = new int[1];
+
+        vertx.eventBus().<IngestBatch>localConsumer(Constants.EVENTBUS_DATABASE_INGEST_ADDRESS, message ->
+        {
+            rows[0] += message.body().rows().size();
+
+            message.reply(new JsonObject().put(Constants.STATUS, Constants.SUCCESS).put(Constants.ROWS, message.body().rows().size()));
+
+            // Every reply carries both metric groups.
+            if (rows[0] == REPLIES * 2)
+            {
+                testContext.completeNow();
+            }
+        });
+
+        var processors = new ArrayList<Future<String>>();
+
+        for (var shard = 0; shard < Constants.POLLING_PROCESSOR_INSTANCES; shard++)
+        {
+            processors.add(vertx.deployVerticle(new PollingProcessor(), new DeploymentOptions().setConfig(new JsonObject().put(Constants.SHARD, shard))));
+        }
+
+        var driver = new ReplayDriver();
+
+        Future.all(processors)
+                .compose(id -> vertx.deployVerticle(driver, new DeploymentOptions().setConfig(new JsonObject().put(ReplayDriver.FILE, file.toString()).put(ReplayDriver.SPEED, 0))))
+                .compose(id -> driver.completion())
+                .onComplete(testContext.succeeding(summary -> testContext.verify(() ->
+                {
+                    assertEquals(REPLIES + 1L, summary.getLong("frames"));
+
+                    assertEquals(REPLIES, summary.getLong("replies"));
+
+                    assertEquals(1L, summary.getLong("skipped"));
+                })));
+    }
+
+    private static JsonObject pollingReply(long jobId)
+    {
+        return new JsonObject()
+                .put(Constants.REQUEST_TYPE, Constants.POLLING)
+                .put(Constants.DATABASE_JOB_ID, String.valueOf(jobId))
+                .put(Constants.REQUEST_ID, "1")
+                .put(Constants.DATA, new JsonObject()
+                        .put("system.name", "device-" + jobId)
+                        .put(Constants.METRIC_GROUP_INTERFACES, new JsonArray().add(new JsonObject()
+                                .put("interface.name", "GigabitEthernet0/1")
+                                .put("interface.sent.octets", 1_000L * jobId))));
+    }
+}
@@ -0,0 +1,61 @@
+package io.vertx.nms.messaging;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.nms.polling.MetricGroups;
+import io.vertx.nms.util.Constants;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RequestTemplatesTest
+{
+    private static final long JOB_ID = 42;
+
+    private static final long VERSION = 7;
+
+    //Tests that requests sent from a template decode to the full request with the request id and timestamp patched in, for both encodings
+    @Test
+    void testPatchesTemplateForBothEncodings()
+    {
+        for (var encoding : new String[] {WireCodec.JSON, WireCodec.CBOR})
+        {
+            var codec = new WireCodec(encoding);
+
+            var templates = new RequestTemplates(codec);
+
+            templates.put(JOB_ID, VERSION, new JsonObject()
+                    .put(Constants.REQUEST_TYPE, Constants.POLLING)
+                    .put(Constants.DATABASE_JOB_ID, JOB_ID)
+                    .put(Constants.IP, "10.0.0.1")
+                    .put(Constants.COMMUNITY, "public")
+                    .put(Constants.REQUEST_ID, 1L)
+                    .put(Constants.METRIC_GROUPS, MetricGroups.ALL)
+                    .put(Constants.TEMPLATE_VERSION, VERSION));
+
+            for (var requestId = 1L; requestId <= 3; requestId++)
+            {
+                var request = codec.decode(templates.encode(JOB_ID, VERSION, MetricGroups.INTERFACES, requestId, 1_700_000_000_000L + requestId));
+
+                assertEquals(requestId, Long.parseLong(request.getString(Constants.REQUEST_ID)));
+
+                assertEquals(1_700_000_000_000L + requestId, Long.parseLong(request.getString(Constants.REQUEST_TIMESTAMP)));
+
+                assertEquals(new JsonArray().add(Constants.METRIC_GROUP_INTERFACES), request.getJsonArray(Constants.METRIC_GROUPS));
+
+                assertEquals("public", request.getString(Constants.COMMUNITY));
+
+                assertFalse(request.containsKey(Constants.TEMPLATE_VERSION));
+            }
+
+            assertEquals(1L, templates.stats().getLong("builds"));
+
+            assertTrue(templates.contains(JOB_ID, VERSION));
+
+            assertNull(templates.encode(JOB_ID, VERSION + 1, MetricGroups.INTERFACES, 4, 0));
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package io.vertx.nms.messaging;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SendLaneTest
+{
+    private static final int CAPACITY = 4;
+
+    //Tests that a full lane rejects new requests but still takes requests put back in front, keeping FIFO order across the ring wrap
+    @Test
+    void testRejectsWhenFullAndKeepsOrder()
+    {
+        var lane = new SendLane(CAPACITY);
+
+        // Queue times double as request markers, the head's queue time tells which request is next.
+        for (var i = 1; i <= CAPACITY; i++)
+        {
+            assertTrue(lane.offer(null, i));
+        }
+
+        assertFalse(lane.offer(null, 99));
+
+        lane.sent(10);
+
+        lane.sent(10);
+
+        assertTrue(lane.offer(null, 5));
+
+        assertTrue(lane.offer(null, 6));
+
+        assertFalse(lane.offer(null, 99));
+
+        lane.addFirst(null, 2);
+
+        assertEquals(CAPACITY + 1, lane.size());
+
+        for (var expected = 2; expected <= 6; expected++)
+        {
+            assertEquals(expected, lane.oldestQueuedAt());
+
+            lane.sent(10);
+        }
+
+        assertTrue(lane.isEmpty());
+
+        assertEquals(2, lane.stats(10).getLong("rejected"));
+
+        assertEquals(CAPACITY + 1, lane.stats(10).getInteger("high_water"));
+    }
+}
@@ -0,0 +1,99 @@
+package io.vertx.nms.messaging;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WireCodecTest
+{
+    private static final Logger logger = LoggerFactory.getLogger(WireCodecTest.class);
+
+    private static final int REPLIES = 1_000;
+
+    private static final int INTERFACES = 48;
+
+    //Tests that auto mode switches requests to CBOR once the plugin sends CBOR, and that both encodings round trip
+    @Test
+    void testNegotiatesCborAndRoundTrips()
+    {
+        var plugin = new WireCodec(WireCodec.CBOR);
+
+        var server = new WireCodec(WireCodec.AUTO);
+
+        var reply = pollingReply();
+
+        assertEquals(reply, server.decode(new WireCodec(WireCodec.JSON).encode(reply)));
+
+        assertEquals(WireCodec.JSON, server.stats().getString("encoding"));
+
+        assertEquals(reply, server.decode(plugin.encode(reply)));
+
+        assertEquals(WireCodec.CBOR, server.stats().getString("encoding"));
+
+        assertEquals(reply, plugin.decode(server.encode(reply)));
+    }
+
+    //Measures bytes on the wire and decode time per 1k polling replies with an interface table, for both encodings
+    @Test
+    @Tag("benchmark")
+    void testMeasureBytesAndDecodeTime()
+    {
+        var bytes = new int[2];
+
+        var encodings = new String[]{WireCodec.JSON, WireCodec.CBOR};
+
+        for (var i = 0; i < encodings.length; i++)
+        {
+            var encoding = encodings[i];
+
+            var frame = new WireCodec(encoding).encode(pollingReply());
+
+            bytes[i] = frame.length;
+
+            var codec = new WireCodec(WireCodec.JSON);
+
+            for (var j = 0; j < REPLIES * 5; j++)
+            {
+                codec.decode(frame);
+            }
+
+            var stats = codec.stats().getJsonObject(encoding);
+
+            logger.info("{}: {} bytes per reply, {} us to decode 1k replies", encoding, frame.length, stats.getLong("decode_us_per_1k"));
+        }
+
+        assertTrue(bytes[1] < bytes[0], "CBOR frame not smaller than JSON");
+    }
+
+    private static JsonObject pollingReply()
+    {
+        var interfaces = new JsonArray();
+
+        for (var i = 0; i < INTERFACES; i++)
+        {
+            interfaces.add(new JsonObject()
+                    .put("interface.name", "GigabitEthernet0/" + i)
+                    .put("interface.index", i)
+                    .put("interface.operational.status", "1")
+                    .put("interface.speed", 1_000_000_000L)
+                    .put("interface.sent.octets", 918_273_645_123L + i)
+                    .put("interface.received.octets", 123_456_789_012L + i)
+                    .put("interface.sent.error.packets", i % 3)
+                    .put("interface.received.error.packets", i % 5));
+        }
+
+        return new JsonObject()
+                .put("requestType", "polling")
+                .put("job_id", "42")
+                .put("data", new JsonObject()
+                        .put("system.name", "core-switch-01")
+                        .put("system.uptime", "12 days, 4 hours, 3 minutes, 10 seconds")
+                        .put("interfaces", interfaces));
+    }
+}
@@ -0,0 +1,126 @@
+package io.vertx.nms.polling;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.nms.util.Constants;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveBatcherTest
+{
+    // Writes handed to the batcher, completed by hand.
+    private final List<Promise<Void>> writes = new ArrayList<>();
+
+    private final List<Integer> batchSizes = new ArrayList<>();
+
+    private int released;
+
+    private final AdaptiveBatcher batcher = new AdaptiveBatcher(this::write, () -> released++);
+
+    //Tests that the batch grows after a fast write, halves after a failed one and counts the rows it dropped
+    @Test
+    void testGrowsAndHalves()
+    {
+        addRows(Constants.INGEST_MIN_BATCH_SIZE, System.currentTimeMillis());
+
+        assertEquals(List.of(Constants.INGEST_MIN_BATCH_SIZE), batchSizes);
+
+        writes.get(0).complete();
+
+        var grown = batcher.stats().getInteger("batch_size");
+
+        assertTrue(grown > Constants.INGEST_MIN_BATCH_SIZE, "Batch did not grow after a fast write: " + grown);
+
+        addRows(grown, System.currentTimeMillis());
+
+        assertEquals(grown, batchSizes.get(1));
+
+        writes.get(1).fail("database down");
+
+        assertEquals(Math.max(Constants.INGEST_MIN_BATCH_SIZE, grown / 2), batcher.stats().getInteger("batch_size"));
+
+        assertEquals(1L, batcher.stats().getLong("failed_batches"));
+
+        assertEquals((long) grown, batcher.stats().getLong("dropped_rows"));
+    }
+
+    //Tests that a partial batch waits until its oldest row is stale and is then flushed by the periodic check
+    @Test
+    void testFlushesStaleRows()
+    {
+        batcher.add(row(System.currentTimeMillis()));
+
+        batcher.checkStaleness();
+
+        assertTrue(batchSizes.isEmpty());
+
+        var stale = new AdaptiveBatcher(this::write, () -> released++);
+
+        stale.add(row(System.currentTimeMillis() - Constants.INGEST_MAX_STALENESS));
+
+        stale.add(row(System.currentTimeMillis()));
+
+        assertTrue(batchSizes.isEmpty());
+
+        stale.checkStaleness();
+
+        assertEquals(List.of(2), batchSizes);
+    }
+
+    //Tests that a full queue applies backpressure and that it is released once completed writes drain the queue
+    @Test
+    void testReleasesSaturation()
+    {
+        // Every in-flight slot holds a minimum batch, then the queue fills up behind them.
+        var maxQueued = Constants.INGEST_MAX_BATCH_SIZE * Constants.INGEST_MAX_IN_FLIGHT_BATCHES * 2;
+
+        addRows(Constants.INGEST_MIN_BATCH_SIZE * Constants.INGEST_MAX_IN_FLIGHT_BATCHES + maxQueued, System.currentTimeMillis());
+
+        assertEquals(Constants.INGEST_MAX_IN_FLIGHT_BATCHES, writes.size());
+
+        assertTrue(batcher.isSaturated());
+
+        assertEquals(0, released);
+
+        for (var i = 0; i < writes.size() && batcher.isSaturated(); i++)
+        {
+            writes.get(i).complete();
+        }
+
+        assertFalse(batcher.isSaturated());
+
+        assertEquals(1, released);
+
+        assertTrue(batcher.stats().getInteger("queued") < maxQueued / 2);
+    }
+
+    private Future<?> write(List<PollRow> batch)
+    {
+        var promise = Promise.<Void>promise();
+
+        writes.add(promise);
+
+        batchSizes.add(batch.size());
+
+        return promise.future();
+    }
+
+    private void addRows(int count, long polledAt)
+    {
+        for (var i = 0; i < count; i++)
+        {
+            batcher.add(row(polledAt));
+        }
+    }
+
+    private static PollRow row(long polledAt)
+    {
+        return new PollRow(1, Constants.METRIC_GROUP_INTERFACES, polledAt, null, null);
+    }
+}
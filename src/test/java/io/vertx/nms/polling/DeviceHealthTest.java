@@ -0,0 +1,107 @@
+package io.vertx.nms.polling;
+
+import io.vertx.nms.util.Constants;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DeviceHealthTest
+{
+    private static final long JOB_ID = 7;
+
+    //Tests that a breaker probe which is failed before it is answered lets a new probe through on the next cycle
+    @Test
+    void testAbandonedProbeIsRetried()
+    {
+        var health = new DeviceHealth();
+
+        for (var i = 0; i < Constants.POLLING_FAILURE_THRESHOLD; i++)
+        {
+            health.onSent(JOB_ID, i);
+
+            health.onTimeout(JOB_ID);
+        }
+
+        // The breaker is open with one skip.
+        assertFalse(health.shouldPoll(JOB_ID));
+
+        // The probe goes out, then the messenger fails it fast, e.g. because no plugin worker is alive.
+        assertTrue(health.shouldPoll(JOB_ID));
+
+        assertEquals(1, health.stats().getInteger("half_open"));
+
+        health.onAbandoned(JOB_ID);
+
+        assertEquals(1, health.stats().getInteger("open"));
+
+        assertTrue(health.shouldPoll(JOB_ID), "A new probe should be let through");
+
+        health.onReply(JOB_ID, 100);
+
+        assertTrue(health.shouldPoll(JOB_ID));
+
+        assertEquals(0, health.stats().getInteger("open") + health.stats().getInteger("half_open"));
+    }
+
+    //Tests that a removed device is forgotten, so a job id reused later starts with a closed breaker
+    @Test
+    void testRemoveForgetsDevice()
+    {
+        var health = new DeviceHealth();
+
+        for (var i = 0; i < Constants.POLLING_FAILURE_THRESHOLD; i++)
+        {
+            health.onTimeout(JOB_ID);
+        }
+
+        assertEquals(1, health.stats().getInteger("open"));
+
+        health.remove(JOB_ID);
+
+        assertEquals(0, health.stats().getInteger("open"));
+
+        assertTrue(health.shouldPoll(JOB_ID));
+    }
+
+    //Tests that the timeout is three times the p95 response time, clamped to the bounds, once enough replies are known
+    @Test
+    void testAdaptiveTimeout()
+    {
+        var health = new DeviceHealth();
+
+        assertEquals(Constants.POLLING_MAX_TIMEOUT, health.timeout(JOB_ID));
+
+        reply(health, JOB_ID, 5_000);
+
+        reply(health, JOB_ID, 8_000);
+
+        reply(health, JOB_ID, 6_000);
+
+        // Fewer than four samples, the timeout stays at the maximum.
+        assertEquals(Constants.POLLING_MAX_TIMEOUT, health.timeout(JOB_ID));
+
+        reply(health, JOB_ID, 7_000);
+
+        assertEquals(Math.max(Constants.POLLING_MIN_TIMEOUT, Math.min(Constants.POLLING_MAX_TIMEOUT, 3 * 8_000L)), health.timeout(JOB_ID));
+
+        for (var i = 0; i < 16; i++)
+        {
+            reply(health, 1, 100);
+
+            reply(health, 2, 200_000);
+        }
+
+        assertEquals(Constants.POLLING_MIN_TIMEOUT, health.timeout(1));
+
+        assertEquals(Constants.POLLING_MAX_TIMEOUT, health.timeout(2));
+    }
+
+    private static void reply(DeviceHealth health, long jobId, long latency)
+    {
+        health.onSent(jobId, 1_000);
+
+        health.onReply(jobId, 1_000 + latency);
+    }
+}
@@ -0,0 +1,70 @@
+package io.vertx.nms.polling;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import io.vertx.nms.util.Constants;
+import io.vertx.nms.util.Util;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@ExtendWith(VertxExtension.class)
+class PollDispatcherTest
+{
+    //Tests that the backlog keeps one poll per job, sent with the latest device, and that removed jobs are not sent
+    @Test
+    void testKeepsOnePollPerJob(Vertx vertx, VertxTestContext testContext)
+    {
+        var dispatched = new ArrayList<JsonObject>();
+
+        for (var shard = 0; shard < Constants.POLLING_PROCESSOR_INSTANCES; shard++)
+        {
+            vertx.eventBus().<JsonArray>localConsumer(Util.shardAddress(Constants.EVENTBUS_POLLING_BATCH_ADDRESS, shard), message ->
+                    message.body().forEach(device -> dispatched.add((JsonObject) device)));
+        }
+
+        var dispatcher = new PollDispatcher(vertx, 100);
+
+        // Due three times while waiting, e.g. because the fleet needs more than the dispatch rate.
+        for (var cycle = 0; cycle < 3; cycle++)
+        {
+            dispatcher.enqueue(device(1, "old"));
+        }
+
+        dispatcher.enqueue(device(2, "old"));
+
+        dispatcher.replace(device(1, "new"));
+
+        dispatcher.remove(2);
+
+        assertEquals(1, dispatcher.stats().getInteger("backlog"));
+
+        assertEquals(2, dispatcher.stats().getLong("coalesced"));
+
+        dispatcher.tick();
+
+        assertEquals(0, dispatcher.stats().getInteger("backlog"));
+
+        vertx.setTimer(100, id -> testContext.verify(() ->
+        {
+            assertEquals(1, dispatched.size());
+
+            assertEquals(1L, dispatched.get(0).getLong(Constants.DATABASE_JOB_ID));
+
+            assertEquals("new", dispatched.get(0).getString(Constants.IP));
+
+            testContext.completeNow();
+        }));
+    }
+
+    private static JsonObject device(long jobId, String ip)
+    {
+        return new JsonObject().put(Constants.DATABASE_JOB_ID, jobId).put(Constants.IP, ip);
+    }
+}
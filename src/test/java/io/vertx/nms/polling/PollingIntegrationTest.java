@@ -1,5 +1,7 @@
 package io.vertx.nms.polling;
 
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Future;
 import io.vertx.core.Vertx;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
@@ -15,9 +17,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @ExtendWith(VertxExtension.class)
 public class PollingIntegrationTest
@@ -79,8 +83,15 @@ public class PollingIntegrationTest
             System.exit(1);
         }
 
+        var processors = new ArrayList<Future<String>>();
+
+        for (var shard = 0; shard < Constants.POLLING_PROCESSOR_INSTANCES; shard++)
+        {
+            processors.add(vertx.deployVerticle(new PollingProcessor(), new DeploymentOptions().setConfig(new JsonObject().put(Constants.SHARD, shard))));
+        }
+
         vertx.deployVerticle(new PollingScheduler())
-                .compose(id -> vertx.deployVerticle(new PollingProcessor()))
+                .compose(id -> Future.all(processors))
                 .compose(zmqId -> vertx.deployVerticle( new ZmqMessenger()))
                 .onComplete(testContext.succeedingThenComplete());
     }
@@ -102,6 +113,8 @@ public class PollingIntegrationTest
     {
         logger.info("Starting testFullPollingFlow");
 
+        var storedRows = new AtomicInteger();
+
         vertx.eventBus().<JsonObject>localConsumer(Constants.EVENTBUS_DATABASE_ADDRESS, dbMessage ->
         {
             var request = dbMessage.body();
@@ -128,15 +141,20 @@ public class PollingIntegrationTest
                     }
                     dbMessage.reply(new JsonObject().put(Constants.DATA, devices));
                 }
+            }
+        });
 
-                else if (query.startsWith("insert"))
-                {
-                    var params = request.getJsonArray(Constants.PARAMS);
+        vertx.eventBus().<IngestBatch>localConsumer(Constants.EVENTBUS_DATABASE_INGEST_ADDRESS, ingestMessage ->
+        {
+            var rows = ingestMessage.body().rows();
 
-                    assertEquals(BATCH_SIZE * 3, params.size(), "Batch insert parameters count mismatch");
+            rows.forEach(row -> assertTrue(row.jobId() > 0 && row.polledAt() > 0 && row.metrics() != null, "Ingest row is incomplete"));
 
-                    testContext.completeNow();
-                }
+            ingestMessage.reply(new JsonObject().put(Constants.STATUS, Constants.SUCCESS).put(Constants.ROWS, rows.size()));
+
+            if (storedRows.addAndGet(rows.size()) == BATCH_SIZE)
+            {
+                testContext.completeNow();
             }
         });
 
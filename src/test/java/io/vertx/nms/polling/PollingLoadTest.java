@@ -0,0 +1,187 @@
+package io.vertx.nms.polling;
+
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.junit5.Timeout;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import io.vertx.nms.messaging.FakeSnmpPlugin;
+import io.vertx.nms.messaging.ZmqMessenger;
+import io.vertx.nms.util.Constants;
+import io.vertx.nms.util.LatencyHistogram;
+import io.vertx.nms.util.Util;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Runs the scheduler, processors and messenger against the fake SNMP plugin and a mocked database, so the whole
+// scheduler to ZMQ to ingest path can be loaded on one machine. The fleet and network are set with the fake.*
+// system properties, see FakeSnmpPlugin.Profile. Runs with -Pbenchmark.
+@Tag("benchmark")
+@ExtendWith(VertxExtension.class)
+public class PollingLoadTest
+{
+    private static final Logger logger = LoggerFactory.getLogger(PollingLoadTest.class);
+
+    private static final long TEST_TIMEOUT = 90_000;
+
+    private FakeSnmpPlugin plugin;
+
+    @BeforeEach
+    void deployVerticles(Vertx vertx, VertxTestContext testContext)
+    {
+        plugin = new FakeSnmpPlugin(FakeSnmpPlugin.Profile.fromSystemProperties(), Constants.PLUGIN_WORKERS).start();
+
+        var devices = plugin.devices(Constants.MIN_POLL_INTERVAL);
+
+        // The device registry is loaded as the scheduler starts, so the mocked database has to be in place first.
+        // It answers the registry's keyset pages: up to $1 devices with a job id above $2.
+        vertx.eventBus().<JsonObject>localConsumer(Constants.EVENTBUS_DATABASE_ADDRESS, message ->
+        {
+            if (message.body().getString(Constants.QUERY, "").contains("SELECT"))
+            {
+                var params = message.body().getJsonArray(Constants.PARAMS);
+
+                var page = new JsonArray();
+
+                for (var device : devices)
+                {
+                    if (page.size() < params.getInteger(0) && ((JsonObject) device).getLong(Constants.DATABASE_JOB_ID) > params.getLong(1))
+                    {
+                        page.add(device);
+                    }
+                }
+
+                message.reply(new JsonObject().put(Constants.DATA, page));
+            }
+        });
+
+        var processors = new ArrayList<Future<String>>();
+
+        for (var shard = 0; shard < Constants.POLLING_PROCESSOR_INSTANCES; shard++)
+        {
+            processors.add(vertx.deployVerticle(new PollingProcessor(), new DeploymentOptions().setConfig(new JsonObject().put(Constants.SHARD, shard))));
+        }
+
+        vertx.deployVerticle(new ZmqMessenger())
+                .compose(id -> Future.all(processors))
+                .compose(id -> vertx.deployVerticle(new PollingScheduler()))
+                .onComplete(testContext.succeedingThenComplete());
+    }
+
+    @AfterEach
+    void tearDown()
+    {
+        plugin.close();
+    }
+
+    //Tests that every simulated device is polled and stored, and logs throughput and the latency of each poll stage
+    @Test
+    @Timeout(value = 100, timeUnit = TimeUnit.SECONDS)
+    void testPollsFleetThroughFakePlugin(Vertx vertx, VertxTestContext testContext)
+    {
+        var profile = FakeSnmpPlugin.Profile.fromSystemProperties();
+
+        var deviceCount = profile.devices();
+
+        // A device whose first poll is lost has no response history and waits out the maximum timeout before it is
+        // polled again, so the run ends once all but a few times the lost fraction of the fleet has been stored.
+        var expected = deviceCount * (1 - 3 * profile.lossRate());
+
+        var stored = new BitSet(deviceCount + 1);
+
+        var rows = new long[1];
+
+        var reported = new boolean[1];
+
+        var start = System.currentTimeMillis();
+
+        vertx.eventBus().<IngestBatch>localConsumer(Constants.EVENTBUS_DATABASE_INGEST_ADDRESS, message ->
+        {
+            var batch = message.body().rows();
+
+            testContext.verify(() -> batch.forEach(row ->
+            {
+                assertTrue(row.jobId() > 0 && row.jobId() <= deviceCount, "Row of an unknown device");
+
+                stored.set((int) row.jobId());
+            }));
+
+            rows[0] += batch.size();
+
+            message.reply(new JsonObject().put(Constants.STATUS, Constants.SUCCESS).put(Constants.ROWS, batch.size()));
+
+            if (!reported[0] && stored.cardinality() >= expected)
+            {
+                reported[0] = true;
+
+                var elapsed = System.currentTimeMillis() - start;
+
+                var shards = new ArrayList<Future<Message<JsonObject>>>();
+
+                for (var shard = 0; shard < Constants.POLLING_PROCESSOR_INSTANCES; shard++)
+                {
+                    shards.add(vertx.eventBus().request(Util.shardAddress(Constants.EVENTBUS_POLLING_LATENCY_ADDRESS, shard), new JsonObject()));
+                }
+
+                Future.all(shards).onComplete(latency ->
+                {
+                    logger.info("Stored {} of {} devices in {} ms, {} rows, {} rows/s", stored.cardinality(), deviceCount, elapsed, rows[0], rows[0] * 1000 / Math.max(1, elapsed));
+
+                    logger.info("Fake plugin: {}", plugin.stats().encode());
+
+                    if (latency.succeeded())
+                    {
+                        logger.info("Poll stages: {}", stagePercentiles(shards));
+                    }
+
+                    testContext.completeNow();
+                });
+            }
+        });
+
+        vertx.setTimer(TEST_TIMEOUT, id ->
+        {
+            if (!testContext.completed())
+            {
+                testContext.failNow(new TimeoutException("Stored " + stored.cardinality() + " of " + deviceCount + " devices within " + TEST_TIMEOUT + " ms"));
+            }
+        });
+    }
+
+    // @return The p50 and p99 of every poll stage in milliseconds, merged across shards.
+    private static JsonObject stagePercentiles(List<Future<Message<JsonObject>>> shards)
+    {
+        var merged = new LinkedHashMap<String, LatencyHistogram>();
+
+        for (var shard : shards)
+        {
+            var stages = shard.result().body().getJsonObject("latency").getJsonObject("stages");
+
+            stages.fieldNames().forEach(stage -> merged.computeIfAbsent(stage, name -> new LatencyHistogram()).merge(LatencyHistogram.fromJson(stages.getJsonArray(stage))));
+        }
+
+        var percentiles = new JsonObject();
+
+        merged.forEach((stage, histogram) -> percentiles.put(stage, histogram.percentile(50) + "/" + histogram.percentile(99)));
+
+        return percentiles;
+    }
+}
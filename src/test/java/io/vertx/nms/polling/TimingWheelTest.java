@@ -0,0 +1,75 @@
+package io.vertx.nms.polling;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimingWheelTest
+{
+    private static final long TICK = 1_000;
+
+    //Tests that entries on every level expire on their own tick
+    @Test
+    void testEntriesExpireOnTheirDeadline()
+    {
+        var wheel = new TimingWheel<Long>(TICK, 0);
+
+        var expired = new ArrayList<long[]>();
+
+        var deadlines = List.of(5_000L, 63_000L, 64_000L, 300_000L, 900_000L, 4_200_000L, 86_400_000L);
+
+        deadlines.forEach(deadline -> wheel.schedule(new TimingWheel.Entry<>(deadline), deadline));
+
+        for (var now = 0L; now <= 86_400_000L; now += TICK)
+        {
+            var time = now;
+
+            wheel.advance(now, entry -> expired.add(new long[]{entry.value(), time}));
+        }
+
+        assertEquals(deadlines.size(), expired.size(), "Every entry should expire once");
+
+        expired.forEach(pair -> assertEquals(pair[0], pair[1], "Entry expired at the wrong tick"));
+
+        assertEquals(0, wheel.size());
+    }
+
+    //Tests that cancelled entries never expire and rescheduled entries keep firing at their interval
+    @Test
+    void testCancelAndReschedule()
+    {
+        var wheel = new TimingWheel<String>(TICK, 0);
+
+        var cancelled = new TimingWheel.Entry<>("cancelled");
+
+        var periodic = new TimingWheel.Entry<>("periodic");
+
+        wheel.schedule(cancelled, 10_000);
+
+        wheel.schedule(periodic, 30_000);
+
+        wheel.cancel(cancelled);
+
+        var fired = new ArrayList<Long>();
+
+        for (var now = 0L; now <= 600_000L; now += TICK)
+        {
+            wheel.advance(now, entry ->
+            {
+                assertTrue(entry.value().equals("periodic"), "Cancelled entry expired");
+
+                fired.add(entry.deadline());
+
+                wheel.schedule(entry, entry.deadline() + 30_000);
+            });
+        }
+
+        assertEquals(20, fired.size());
+
+        assertEquals(1, wheel.size());
+    }
+}
@@ -0,0 +1,44 @@
+package io.vertx.nms.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyHistogramTest
+{
+    //Tests that percentiles stay within the bucket precision and merged histograms match a single one
+    @Test
+    void testMergedPercentiles()
+    {
+        var whole = new LatencyHistogram();
+
+        var first = new LatencyHistogram();
+
+        var second = new LatencyHistogram();
+
+        for (var value = 1L; value <= 100_000; value++)
+        {
+            whole.record(value);
+
+            (value % 3 == 0 ? first : second).record(value);
+        }
+
+        var merged = LatencyHistogram.fromJson(first.toJson());
+
+        merged.merge(LatencyHistogram.fromJson(second.toJson()));
+
+        assertEquals(whole.count(), merged.count());
+
+        for (var percentile : new double[]{50, 90, 99, 99.9})
+        {
+            var exact = (long) (100_000 * percentile / 100);
+
+            assertEquals(whole.percentile(percentile), merged.percentile(percentile));
+
+            assertTrue(Math.abs(merged.percentile(percentile) - exact) <= exact / 8, "p" + percentile + " was " + merged.percentile(percentile));
+        }
+
+        assertEquals(0, new LatencyHistogram().percentile(50));
+    }
+}
@@ -0,0 +1,155 @@
+package io.vertx.nms.util;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PendingTrackerTest
+{
+    private static final Logger logger = LoggerFactory.getLogger(PendingTrackerTest.class);
+
+    private static final long TICK = 1_000;
+
+    private static final long TIMEOUT = 270_000;
+
+    private static final int OUTSTANDING = 100_000;
+
+    private static final int ROUNDS = 5;
+
+    //Tests that completed requests never expire and every other request expires within one tick of its deadline
+    @Test
+    void testExpiresWithinOneTick()
+    {
+        var tracker = new PendingTracker<String>(16, TICK, 0);
+
+        for (var key = 1L; key <= 1_000; key++)
+        {
+            tracker.track(key, key * 37, key * 37 + TIMEOUT, "job-" + key);
+        }
+
+        for (var key = 2L; key <= 1_000; key += 2)
+        {
+            assertEquals(key * 37, tracker.complete(key));
+        }
+
+        // Re-tracking moves the deadline, the earlier wheel entry must not expire it.
+        tracker.track(1, 50_000, 50_000 + TIMEOUT, "job-1");
+
+        var expired = new int[1];
+
+        for (var now = 0L; now <= 400_000; now += TICK)
+        {
+            var time = now;
+
+            tracker.expire(now, (key, sentAt, ref) ->
+            {
+                assertEquals(1, key % 2, "Completed request expired");
+
+                assertEquals("job-" + key, ref);
+
+                assertTrue(time >= sentAt + TIMEOUT && time < sentAt + TIMEOUT + TICK, "Request " + key + " expired at " + time);
+
+                expired[0]++;
+            });
+        }
+
+        assertEquals(500, expired[0]);
+
+        assertEquals(0, tracker.size());
+
+        assertEquals(PendingTracker.MISSING, tracker.sentAt(1));
+    }
+
+    //Compares tracking, completing and expiring 100k outstanding requests against a boxed map scanned on every check
+    @Test
+    @Tag("benchmark")
+    void testBenchmarkHundredThousandOutstanding()
+    {
+        long trackerNanos = Long.MAX_VALUE, mapNanos = Long.MAX_VALUE;
+
+        for (var round = 0; round < ROUNDS; round++)
+        {
+            var start = System.nanoTime();
+
+            assertEquals(OUTSTANDING / 2, runTracker());
+
+            trackerNanos = Math.min(trackerNanos, System.nanoTime() - start);
+
+            start = System.nanoTime();
+
+            assertEquals(OUTSTANDING / 2, runMap());
+
+            mapNanos = Math.min(mapNanos, System.nanoTime() - start);
+        }
+
+        logger.info("{} outstanding requests, one check per second: tracker {} ms, boxed map {} ms",
+                OUTSTANDING, trackerNanos / 1_000_000, mapNanos / 1_000_000);
+
+        assertTrue(trackerNanos < mapNanos, "Tracker slower than a boxed map scan");
+    }
+
+    // Tracks every request in the first second, completes half of them and checks once per second until the rest expire.
+    private int runTracker()
+    {
+        var tracker = new PendingTracker<Void>(OUTSTANDING, TICK, 0);
+
+        var expired = new int[1];
+
+        for (var key = 0L; key < OUTSTANDING; key++)
+        {
+            tracker.track(key, key / 100, key / 100 + TIMEOUT, null);
+        }
+
+        for (var key = 0L; key < OUTSTANDING; key += 2)
+        {
+            tracker.complete(key);
+        }
+
+        for (var now = 0L; now <= TIMEOUT + 2 * TICK; now += TICK)
+        {
+            tracker.expire(now, (key, sentAt, ref) -> expired[0]++);
+        }
+
+        return expired[0];
+    }
+
+    private int runMap()
+    {
+        var pending = new HashMap<Long, Long>();
+
+        var expired = 0;
+
+        for (var key = 0L; key < OUTSTANDING; key++)
+        {
+            pending.put(key, key / 100);
+        }
+
+        for (var key = 0L; key < OUTSTANDING; key += 2)
+        {
+            pending.remove(key);
+        }
+
+        for (var now = 0L; now <= TIMEOUT + 2 * TICK; now += TICK)
+        {
+            var iterator = pending.entrySet().iterator();
+
+            while (iterator.hasNext())
+            {
+                if (now - iterator.next().getValue() >= TIMEOUT)
+                {
+                    iterator.remove();
+
+                    expired++;
+                }
+            }
+        }
+
+        return expired;
+    }
+}